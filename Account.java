@@ -2,6 +2,7 @@ package socialmedia;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 
 /**
  *
@@ -13,12 +14,15 @@ import java.util.ArrayList;
  */
 
 public class Account implements Serializable {
-    private ArrayList<Post> posts=new ArrayList<>();
-    private ArrayList<Post> allPosts = new ArrayList<>();
+    private LinkedHashSet<Post> posts=new LinkedHashSet<>(); //insertion ordered sets so posts can be removed in constant time
+    private LinkedHashSet<Post> allPosts = new LinkedHashSet<>();
     private String handle;
     private String description;
-    private static int UNIQUE_ID = 0;
     private int uniqueID;
+    private transient int originalPostCount = 0; //the following counters are kept in step with allPosts
+    private transient int commentCount = 0;
+    private transient int endorsementCount = 0;
+    private transient boolean dirty = false; //changed since the platform was last saved
 
 
     /**
@@ -69,8 +73,7 @@ public class Account implements Serializable {
                 }
 
             }
-            this.handle = handle;
-            this.uniqueID = ++UNIQUE_ID;
+            this.handle = handle; //the unique ID is kept when an Account changes handle
         }
         else{
             throw new InvalidHandleException("Handle is greater than 30 character");
@@ -78,11 +81,11 @@ public class Account implements Serializable {
     }
 
     /**
-     * Sets the uniqueID of the account
+     * Sets the uniqueID of the account, which is allocated by the platform the Account belongs to
      * @param uniqueId integer that will set the Account's unique ID
      */
-    public static void setUniqueId(int uniqueId) {
-        UNIQUE_ID = uniqueId;
+    public void setUniqueId(int uniqueId) {
+        this.uniqueID = uniqueId;
     }
 
     /**
@@ -102,18 +105,18 @@ public class Account implements Serializable {
     }
 
     /**
-     * Gets the ArrayList of Posts
-     * @return the ArrayList of Posts made by an account
+     * Gets the set of Posts
+     * @return the set of Posts made by an account
      */
-    public ArrayList<Post> getPosts() {
+    public LinkedHashSet<Post> getPosts() {
         return posts;
     }
 
     /**
-     * Sets the ArrayList of posts
-     * @param posts the ArrayList of posts
+     * Sets the set of posts
+     * @param posts the set of posts
      */
-    public void setPosts(ArrayList<Post> posts) {
+    public void setPosts(LinkedHashSet<Post> posts) {
         this.posts = posts;
     }
 
@@ -126,15 +129,15 @@ public class Account implements Serializable {
     }
 
     /**
-     * Gets the ArrayList of AllPosts
-     * @return the ArrayList of allPosts made by an account
+     * Gets the set of AllPosts
+     * @return the set of allPosts made by an account
      */
-    public ArrayList<Post> getAllPosts() {
+    public LinkedHashSet<Post> getAllPosts() {
         return allPosts;
     }
 
     @Deprecated
-    public void setAllPosts(ArrayList<Post> allPosts) {
+    public void setAllPosts(LinkedHashSet<Post> allPosts) {
         this.allPosts = allPosts;
     }
 
@@ -152,28 +155,52 @@ public class Account implements Serializable {
     }
 
     /**
-     * Adds a post to the ArrayList of posts and the ArrayList of AllPosts
+     * Adds a post to the set of posts and the set of AllPosts
      * @param post the Post that the Account has created
      * @param account the Account that is associated with the post
      */
     public void addUserPost(Post post,Account account){
-        posts.add(post); //adds posts to appropriate arrayList
+        posts.add(post); //adds posts to appropriate set
         allPosts.add(post);
+        originalPostCount++;
         post.setAccount(account); //adds a pointer back to the account
     }
 
 
     /**
-     * Takes a comment and adds it to the ArrayList of AllPosts
+     * Takes a comment and adds it to the set of AllPosts
      * @param comment the comment that the Account has made
      */
     public void addToAllPostsComment(Comment comment){
         allPosts.add(comment);
+        commentCount++;
     }
 
-    @Deprecated
+    /**
+     * Takes an endorsement and adds it to the set of AllPosts
+     * @param endorsement the endorsement that the Account has made
+     */
     public void addToAllPostsEndorsement(Endorsement endorsement){
         allPosts.add(endorsement);
+        endorsementCount++;
+    }
+
+    /**
+     * Removes a post, comment or endorsement made by the Account from the sets it was added to
+     * @param post the Post that is being removed
+     */
+    public void removeUserPost(Post post){
+        posts.remove(post);
+        if (!allPosts.remove(post)){
+            return;
+        }
+        if (post instanceof Endorsement){
+            endorsementCount--;
+        } else if (post instanceof Comment){
+            commentCount--;
+        } else {
+            originalPostCount--;
+        }
     }
 
     @Deprecated
@@ -186,7 +213,7 @@ public class Account implements Serializable {
     }
 
     /**
-     * This method iterates through the ArrayList of AllPosts and returns a post
+     * This method iterates through the set of AllPosts and returns a post
      * @param id the identifier of the Post
      * @return a Post object that the user has selected.
      */
@@ -211,26 +238,91 @@ public class Account implements Serializable {
 
     @Deprecated
     public void replacePost(Post postToReplace,Post postToReplaceWith){
-        allPosts.set(allPosts.indexOf(postToReplace), postToReplaceWith);
-        posts.set(posts.indexOf(postToReplace),postToReplaceWith);
+        allPosts = replaceInOrder(allPosts, postToReplace, postToReplaceWith);
+        posts = replaceInOrder(posts, postToReplace, postToReplaceWith);
+    }
+
+    @Deprecated
+    private static LinkedHashSet<Post> replaceInOrder(LinkedHashSet<Post> set, Post postToReplace, Post postToReplaceWith){
+        LinkedHashSet<Post> replaced = new LinkedHashSet<>();
+        for (Post post : set){
+            replaced.add(post == postToReplace ? postToReplaceWith : post);
+        }
+        return replaced;
     }
 
 
     /**
-     * Iterates through the ArrayList of AllPosts and counts the Endorsements
+     * Gets the number of Endorsements that the Account has made
      * @return An integer of the no. endorsements that an Account has made
      */
     public int getEndorsements(){
-        int counter = 0;
+        return endorsementCount;
+    }
+
+    /**
+     * Gets the number of original posts that the Account has made
+     * @return An integer of the no. original posts in the set of AllPosts
+     */
+    public int getOriginalPostCount(){
+        return originalPostCount;
+    }
+
+    /**
+     * Gets the number of comments that the Account has made
+     * @return An integer of the no. comments in the set of AllPosts
+     */
+    public int getCommentCount(){
+        return commentCount;
+    }
+
+    /**
+     * Recounts the posts, comments and endorsements in the set of AllPosts, used when an Account
+     * has been deserialised
+     */
+    public void recountPosts(){
+        originalPostCount = 0;
+        commentCount = 0;
+        endorsementCount = 0;
         for (Post post: allPosts){
             if(post instanceof Endorsement){
-                ++counter;
+                endorsementCount++;
+            } else if (post instanceof Comment){
+                commentCount++;
+            } else {
+                originalPostCount++;
             }
         }
-        return counter;
     }
 
 
+    /**
+     * Marks the Account as changed since the platform was last saved
+     * @return true if it was not already marked, and false if it was
+     */
+    public boolean markDirty(){
+        if (dirty) {
+            return false;
+        }
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * Checks whether the Account has changed since the platform was last saved
+     * @return true if the Account is marked as changed, and false if not
+     */
+    public boolean isDirty(){
+        return dirty;
+    }
+
+    /**
+     * Clears the mark once the Account has been saved
+     */
+    public void clearDirty(){
+        dirty = false;
+    }
+
     /**
      * Makes an account redundant by setting the handle to be deleted and setting the description to null
      */
@@ -241,7 +333,11 @@ public class Account implements Serializable {
 
     @Override
     public String toString(){
-       return "ID: " + getUniqueID() + "\nHandle: " + getHandle() + "\nDescription: "+getDescription() + "\nPost count: " + allPosts.size() + "\nEndorse count: " + getEndorsements();
+       StringBuilder sb = Rendering.buffer();
+       sb.append("ID: ").append(getUniqueID()).append("\nHandle: ").append(getHandle()).append("\nDescription: ")
+               .append(getDescription()).append("\nPost count: ").append(allPosts.size()).append("\nEndorse count: ")
+               .append(getEndorsements());
+       return sb.toString();
        //Todo - Post count and Endorse Count
     }
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package socialmedia;
+
+/**
+ *
+ * The BatchResult class reports the outcome of each item of a batch mutation. An item either succeeded and has
+ * the ID it was given, or was rejected with the exception the matching single call would have thrown. Items that
+ * succeeded were applied together, and the rejected items changed nothing
+ *
+ * @author Pierre Siddall and Priya Shah
+ * @version 1.0
+ */
+
+public class BatchResult {
+    private final int[] ids;
+    private final Exception[] errors;
+    private int failures = 0;
+
+    /**
+     * Constructor for the result of a batch
+     * @param size the number of items in the batch
+     */
+    BatchResult(int size) {
+        this.ids = new int[size];
+        this.errors = new Exception[size];
+    }
+
+    /**
+     * Records that an item succeeded
+     * @param i the index of the item in the batch
+     * @param id the ID the item was given
+     */
+    void succeed(int i, int id) {
+        ids[i] = id;
+    }
+
+    /**
+     * Records that an item was rejected
+     * @param i the index of the item in the batch
+     * @param error the exception the matching single call would have thrown
+     */
+    void fail(int i, Exception error) {
+        errors[i] = error;
+        failures++;
+    }
+
+    /**
+     * Gets the number of items in the batch
+     * @return an integer of the number of items
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Checks whether an item succeeded
+     * @param i the index of the item in the batch
+     * @return true if the item was applied and false if it was rejected
+     */
+    public boolean isSuccess(int i) {
+        return errors[i] == null;
+    }
+
+    /**
+     * Gets the ID an item was given
+     * @param i the index of the item in the batch
+     * @return the ID of the account or post the item made, or 0 if it was rejected
+     */
+    public int getId(int i) {
+        return ids[i];
+    }
+
+    /**
+     * Gets the reason an item was rejected
+     * @param i the index of the item in the batch
+     * @return the exception the matching single call would have thrown, or null if the item succeeded
+     */
+    public Exception getError(int i) {
+        return errors[i];
+    }
+
+    /**
+     * Gets the number of items that were rejected
+     * @return an integer of the number of rejected items
+     */
+    public int getFailureCount() {
+        return failures;
+    }
+
+    /**
+     * Gets the IDs every item was given
+     * @return a copy of the IDs in the order of the batch, with 0 for rejected items
+     */
+    public int[] getIds() {
+        return ids.clone();
+    }
+}
@@ -0,0 +1,367 @@
+package socialmedia;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ *
+ * The BlockSnapshot class stores a binary snapshot as a sequence of blocks, each compressed on its own and
+ * carrying a CRC32C of its stored bytes. The blocks are encoded and decoded in parallel, a few ahead of the
+ * one being written or read so memory stays bounded, and a damaged file is reported with the exact block that
+ * failed its check rather than as a malformed record somewhere after it
+ *
+ * @author Pierre Siddall and Priya Shah
+ * @version 1.0
+ */
+
+public class BlockSnapshot {
+    public static final byte[] MAGIC = {'S', 'M', 'P', 'B'};
+    public static final int VERSION = 1;
+    public static final int CODEC_NONE = 0; //blocks are stored as they are
+    public static final int CODEC_DEFLATE = 1; //blocks are compressed with Deflater
+    public static final int BLOCK_SIZE = 1 << 18;
+
+    private static final int HEADER_LENGTH = MAGIC.length + 2; //the magic bytes, the version and the codec
+    private static final int BLOCK_HEADER_LENGTH = 13; //the codec, the raw and stored lengths and the checksum
+
+    /**
+     * Checks whether a stream starts with a block snapshot header, leaving the stream where it was
+     * @param in a stream that supports mark and reset
+     * @return true if the stream starts with the block snapshot magic bytes and false if not
+     * @throws IOException if the stream cannot be read
+     */
+    public static boolean isBlockSnapshot(InputStream in) throws IOException {
+        in.mark(MAGIC.length);
+        try {
+            for (byte b : MAGIC) {
+                if (in.read() != (b & 0xFF)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * Writes records to a file as a block snapshot, leaving the previous file as it was if the save fails
+     * @param filename location of the file to be written
+     * @param snapshot the records to write
+     * @param codec CODEC_NONE or CODEC_DEFLATE
+     * @param force true if the file has to be forced to the disk before returning
+     * @param pool the pool the blocks are encoded on
+     * @throws IllegalArgumentException if the codec is not one of the codecs above
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(String filename, PlatformSnapshot snapshot, int codec, boolean force, ForkJoinPool pool)
+            throws IOException {
+        if (codec != CODEC_NONE && codec != CODEC_DEFLATE) {
+            throw new IllegalArgumentException("Unknown snapshot codec " + codec);
+        }
+        Path temporary = Path.of(filename + ".tmp"); //moved over the target once it is whole
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile())) {
+            BlockOutputStream blocks = new BlockOutputStream(new BufferedOutputStream(file), codec, pool);
+            SnapshotWriter writer = new SnapshotWriter(blocks);
+            writer.writeHeader(snapshot.getLastAccountId(), snapshot.getLastPostId(), snapshot.getJournalSequence());
+            writer.writeRecords(snapshot);
+            writer.finish();
+            blocks.finish();
+            if (force) {
+                file.getFD().sync();
+            }
+        }
+        Files.move(temporary, Path.of(filename), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a block snapshot, decoding its blocks in parallel
+     * @param in the stream the block snapshot is read from, positioned at the start of its header
+     * @param pool the pool the blocks are decoded on
+     * @return the records of the snapshot, not yet linked
+     * @throws IOException if the stream cannot be read, or a block is damaged or missing
+     */
+    public static PlatformSnapshot read(InputStream in, ForkJoinPool pool) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        for (byte b : MAGIC) {
+            if (data.readByte() != b) {
+                throw new IOException("Not a block snapshot");
+            }
+        }
+        int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported block snapshot version " + version);
+        }
+        data.readUnsignedByte(); //the codec the file was saved with, each block records its own
+        PlatformSnapshot snapshot = new SnapshotReader(new BlockInputStream(data, pool)).read();
+        snapshot.setLayout(0, 0); //nothing can be appended to a block snapshot
+        return snapshot;
+    }
+
+    /**
+     * Compresses one block and prefixes it with its header
+     */
+    private static byte[] encode(byte[] raw, int length, int codec) {
+        byte[] stored = raw;
+        int storedLength = length;
+        int blockCodec = CODEC_NONE;
+        if (codec == CODEC_DEFLATE) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(raw, 0, length);
+                deflater.finish();
+                byte[] compressed = new byte[length + 64];
+                int written = 0;
+                while (!deflater.finished() && written < length) {
+                    written += deflater.deflate(compressed, written, compressed.length - written);
+                }
+                if (deflater.finished() && written < length) { //kept as it is when it does not shrink
+                    stored = compressed;
+                    storedLength = written;
+                    blockCodec = CODEC_DEFLATE;
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(stored, 0, storedLength);
+        byte[] block = new byte[BLOCK_HEADER_LENGTH + storedLength];
+        block[0] = (byte) blockCodec;
+        putInt(block, 1, length);
+        putInt(block, 5, storedLength);
+        putInt(block, 9, (int) crc.getValue());
+        System.arraycopy(stored, 0, block, BLOCK_HEADER_LENGTH, storedLength);
+        return block;
+    }
+
+    /**
+     * Checks one block against its checksum and decompresses it
+     */
+    private static byte[] decode(int index, long offset, int codec, int rawLength, byte[] stored, int crcValue)
+            throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(stored, 0, stored.length);
+        if ((int) crc.getValue() != crcValue) {
+            throw new IOException("Snapshot block " + index + " at offset " + offset + " is corrupt");
+        }
+        if (codec == CODEC_NONE) {
+            if (stored.length != rawLength) {
+                throw new IOException("Snapshot block " + index + " at offset " + offset + " has the wrong length");
+            }
+            return stored;
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored);
+            byte[] raw = new byte[rawLength];
+            int read = 0;
+            while (read < rawLength && !inflater.finished() && !inflater.needsInput()) {
+                read += inflater.inflate(raw, read, rawLength - read);
+            }
+            if (read != rawLength || !inflater.finished()) {
+                throw new IOException("Snapshot block " + index + " at offset " + offset + " has the wrong length");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Snapshot block " + index + " at offset " + offset + " cannot be decompressed", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void putInt(byte[] bytes, int at, int value) {
+        bytes[at] = (byte) (value >>> 24);
+        bytes[at + 1] = (byte) (value >>> 16);
+        bytes[at + 2] = (byte) (value >>> 8);
+        bytes[at + 3] = (byte) value;
+    }
+
+    /**
+     * Waits for an encode or decode task, unwrapping the IOException it failed with
+     */
+    private static byte[] await(Future<byte[]> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a snapshot block");
+        } catch (ExecutionException e) {
+            throw failure(e);
+        }
+    }
+
+    /**
+     * Finds the IOException a task on the pool failed with, shared with the sharded snapshots' tasks
+     * @param e the exception the task's future was completed with
+     * @return the IOException the task threw, or a new one wrapping whatever else it failed with
+     */
+    static IOException failure(ExecutionException e) {
+        Throwable cause = e.getCause();
+        while (!(cause instanceof IOException) && cause instanceof RuntimeException && cause.getCause() != null) {
+            cause = cause.getCause(); //the pool wraps the checked exceptions its tasks throw
+        }
+        return cause instanceof IOException ? (IOException) cause : new IOException(cause);
+    }
+
+    private static int window(ForkJoinPool pool) {
+        return pool.getParallelism() * 2; //blocks encoded or decoded ahead of the one in use
+    }
+
+    /**
+     * Splits what is written to it into blocks, encoding them on the pool and writing them out in order
+     */
+    private static class BlockOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final int codec;
+        private final ForkJoinPool pool;
+        private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+        private byte[] buffer = new byte[BLOCK_SIZE];
+        private int position = 0;
+
+        BlockOutputStream(OutputStream out, int codec, ForkJoinPool pool) throws IOException {
+            this.out = out;
+            this.codec = codec;
+            this.pool = pool;
+            out.write(MAGIC);
+            out.write(VERSION);
+            out.write(codec);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (position == buffer.length) {
+                submit();
+            }
+            buffer[position++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (position == buffer.length) {
+                    submit();
+                }
+                int chunk = Math.min(length, buffer.length - position);
+                System.arraycopy(bytes, offset, buffer, position, chunk);
+                position += chunk;
+                offset += chunk;
+                length -= chunk;
+            }
+        }
+
+        private void submit() throws IOException {
+            byte[] raw = buffer;
+            int length = position;
+            pending.add(pool.submit(() -> encode(raw, length, codec)));
+            buffer = new byte[BLOCK_SIZE];
+            position = 0;
+            while (pending.size() > window(pool)) {
+                out.write(await(pending.poll()));
+            }
+        }
+
+        /**
+         * Writes the last block and the end block, which has no bytes, and flushes the stream
+         */
+        void finish() throws IOException {
+            if (position > 0) {
+                submit();
+            }
+            while (!pending.isEmpty()) {
+                out.write(await(pending.poll()));
+            }
+            out.write(new byte[BLOCK_HEADER_LENGTH]);
+            out.flush();
+        }
+    }
+
+    /**
+     * Reads blocks in order, decoding them on the pool a few ahead of the one being read
+     */
+    private static class BlockInputStream extends InputStream {
+        private final DataInputStream in;
+        private final ForkJoinPool pool;
+        private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+        private byte[] block = new byte[0];
+        private int position = 0;
+        private int index = 0; //the index of the next block to be read from the file
+        private long offset = HEADER_LENGTH; //the offset of the next block in the file
+        private boolean ended = false; //set once the end block has been read
+
+        BlockInputStream(DataInputStream in, ForkJoinPool pool) {
+            this.in = in;
+            this.pool = pool;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position == block.length && !next()) {
+                return -1;
+            }
+            return block[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (position == block.length && !next()) {
+                return -1;
+            }
+            int chunk = Math.min(length, block.length - position);
+            System.arraycopy(block, position, bytes, off, chunk);
+            position += chunk;
+            return chunk;
+        }
+
+        private boolean next() throws IOException {
+            while (!ended && pending.size() < window(pool)) {
+                readBlock();
+            }
+            if (pending.isEmpty()) {
+                return false;
+            }
+            block = await(pending.poll());
+            position = 0;
+            return true;
+        }
+
+        private void readBlock() throws IOException {
+            try {
+                int codec = in.readUnsignedByte();
+                int rawLength = in.readInt();
+                int storedLength = in.readInt();
+                int crc = in.readInt();
+                if (rawLength == 0 && storedLength == 0) {
+                    ended = true;
+                    return;
+                }
+                if ((codec != CODEC_NONE && codec != CODEC_DEFLATE) || rawLength < 0 || rawLength > BLOCK_SIZE
+                        || storedLength < 0 || storedLength > rawLength + 64) {
+                    throw new IOException("Snapshot block " + index + " at offset " + offset + " has a damaged header");
+                }
+                byte[] stored = new byte[storedLength];
+                in.readFully(stored);
+                int blockIndex = index;
+                long blockOffset = offset;
+                pending.add(pool.submit(() -> decode(blockIndex, blockOffset, codec, rawLength, stored, crc)));
+                index++;
+                offset += BLOCK_HEADER_LENGTH + storedLength;
+            } catch (EOFException e) {
+                throw new IOException("Snapshot ends inside block " + index + " at offset " + offset, e);
+            }
+        }
+    }
+}
@@ -53,7 +53,15 @@ public class Comment extends Post{
      * Takes in a count parameter to generate the appropriate amount of whitespace to be used in the string
      */
     public String toString(int count) {
-        String whitespace=whiteSpaceGen(count);
-        return whitespace+"| > ID: " + getSequentialID()+"\n"+whitespace+"Account: " + account.getHandle() +"\n"+whitespace+"No. endorsements:" + endorsements.size() + " | No. comments: " + comments.size() +"\n"+whitespace+ getMessage();
+        StringBuilder sb = Rendering.buffer();
+        Rendering.appendIndent(sb, count);
+        sb.append("| > ID: ").append(getSequentialID()).append('\n');
+        Rendering.appendIndent(sb, count);
+        sb.append("Account: ").append(account.getHandle()).append('\n');
+        Rendering.appendIndent(sb, count);
+        sb.append("No. endorsements:").append(endorsements.size()).append(" | No. comments: ").append(comments.size())
+                .append('\n');
+        Rendering.appendIndent(sb, count);
+        return sb.append(getMessage()).toString();
     }
 }
@@ -0,0 +1,317 @@
+package socialmedia;
+
+import java.util.Arrays;
+
+/**
+ *
+ * The CommentPage class holds a bounded run of the comments below a post, in the order showPostChildrenDetails
+ * writes them: each comment followed by its own comments. Every comment comes with its depth below the post and
+ * the ID of the comment or post it replies to, and the page ends with an opaque cursor the next page starts from,
+ * so a thread of any size can be read a page at a time, each page costing no more than its own comments and the
+ * depth of the thread
+ *
+ * @author Pierre Siddall and Priya Shah
+ * @version 1.0
+ */
+
+public class CommentPage {
+    private int[] ids;
+    private int[] parentIds;
+    private int[] depths;
+    private String[] handles;
+    private String[] messages;
+    private int[] endorsementCounts;
+    private int[] commentCounts;
+    private int size = 0;
+    private String nextCursor = null;
+
+    /**
+     * Constructor for an empty page
+     * @param limit the most comments the page can hold
+     */
+    private CommentPage(int limit) {
+        int capacity = Math.min(limit, 256); //grown as comments are added, so a large limit on a small thread costs nothing
+        ids = new int[capacity];
+        parentIds = new int[capacity];
+        depths = new int[capacity];
+        handles = new String[capacity];
+        messages = new String[capacity];
+        endorsementCounts = new int[capacity];
+        commentCounts = new int[capacity];
+    }
+
+    /**
+     * Reads a page of the comments below a post
+     * @param root the post whose thread is read
+     * @param cursor the cursor the previous page ended with, or null to start from the first comment
+     * @param limit the most comments the page holds
+     * @param postIndex the live posts by their sequential IDs, used to find the last comment again if the thread
+     *                  changed since the cursor was made
+     * @return the page, whose cursor is null if it ends the thread
+     * @throws IllegalArgumentException if the limit is not positive, or the cursor is malformed or was made for
+     *                                  another post
+     */
+    static CommentPage read(Post root, String cursor, int limit, IntHashMap<Post> postIndex) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("A page must hold at least one comment");
+        }
+        Post[] path = new Post[16]; //the posts from the root down to the last comment read
+        int[] next = new int[16]; //the index of the next comment to read below each of them
+        path[0] = root;
+        int depth = 0;
+        if (cursor != null) {
+            int[] values = parse(root, cursor);
+            int lastId = values[1];
+            int[] indexes = resume(root, values, postIndex);
+            if (indexes.length >= path.length) {
+                path = Arrays.copyOf(path, indexes.length + 1);
+                next = Arrays.copyOf(next, indexes.length + 1);
+            }
+            for (int i = 0; i < indexes.length; i++) {
+                Post post = path[depth];
+                int index = indexes[i];
+                if (index >= post.comments.size()) {
+                    next[depth] = post.comments.size(); //the rest of these comments were deleted, so carry on above
+                    break;
+                }
+                int slotId = post.comments.get(index).getSequentialID();
+                if (i == indexes.length - 1 && slotId != lastId && slotId != 0) {
+                    next[depth] = index; //the last comment was deleted and the one after it moved into its place
+                    break;
+                }
+                //a stand-in in its place is the last comment itself, replaced as it had replies, so only they are left
+                next[depth] = index + 1;
+                path[++depth] = post.comments.get(index);
+            }
+        }
+        CommentPage page = new CommentPage(limit);
+        Post last = null;
+        while (depth >= 0 && page.size < limit) {
+            Post post = path[depth];
+            if (next[depth] == post.comments.size()) {
+                path[depth--] = null; //every comment below it is read
+                continue;
+            }
+            Comment comment = post.comments.get(next[depth]++);
+            page.add(comment, post.getSequentialID(), depth + 1);
+            last = comment;
+            if (++depth == path.length) {
+                path = Arrays.copyOf(path, depth * 2);
+                next = Arrays.copyOf(next, depth * 2);
+            }
+            path[depth] = comment;
+            next[depth] = 0;
+        }
+        for (int level = depth; level >= 0; level--) {
+            if (next[level] < path[level].comments.size()) { //a comment is left to read, so another page follows
+                page.nextCursor = encode(root, last, next, depth);
+                break;
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Reads the fields of a cursor: the root, the last comment read and the indexes on the way down to it
+     */
+    private static int[] parse(Post root, String cursor) {
+        String[] fields = cursor.split("[-.]");
+        if (fields.length < 3) {
+            throw new IllegalArgumentException("Malformed comment cursor " + cursor);
+        }
+        int[] values = new int[fields.length];
+        try {
+            for (int i = 0; i < fields.length; i++) {
+                values[i] = Integer.parseInt(fields[i], Character.MAX_RADIX);
+                if (values[i] < 0) {
+                    throw new NumberFormatException();
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed comment cursor " + cursor);
+        }
+        if (values[0] != root.getSequentialID()) {
+            throw new IllegalArgumentException("Comment cursor was not made for post " + root.getSequentialID());
+        }
+        return values;
+    }
+
+    /**
+     * Finds the indexes leading from the root to the last comment a cursor was made after. If a deletion has
+     * moved that comment, it is found again by its ID, and if it was deleted itself the indexes are used as
+     * they are, so the thread carries on from the comment that took its place, or below the generic empty post
+     * that replaced it
+     */
+    private static int[] resume(Post root, int[] values, IntHashMap<Post> postIndex) {
+        int lastId = values[1];
+        int[] indexes = Arrays.copyOfRange(values, 2, values.length);
+        Post post = root;
+        for (int index : indexes) {
+            if (index < 0 || index >= post.comments.size()) {
+                post = null;
+                break;
+            }
+            post = post.comments.get(index);
+        }
+        if (post != null && post.getSequentialID() == lastId) {
+            return indexes;
+        }
+        Post last = lastId == 0 ? null : postIndex.get(lastId);
+        if (!(last instanceof Comment)) {
+            return indexes; //the comment was deleted
+        }
+        int depth = 0;
+        for (Post above = last; above != root; above = ((Comment) above).getPost()) {
+            if (!(above instanceof Comment)) {
+                return indexes; //no longer below the root
+            }
+            depth++;
+        }
+        int[] found = new int[depth];
+        for (Post below = last; below != root; below = ((Comment) below).getPost()) {
+            found[--depth] = ((Comment) below).getPost().comments.indexOf(below);
+        }
+        return found;
+    }
+
+    /**
+     * Writes the root, the last comment read and the index of each comment on the way down to it
+     */
+    private static String encode(Post root, Post last, int[] next, int depth) {
+        StringBuilder cursor = new StringBuilder(16 + depth * 3);
+        cursor.append(Integer.toString(root.getSequentialID(), Character.MAX_RADIX)).append('-')
+                .append(Integer.toString(last.getSequentialID(), Character.MAX_RADIX)).append('-');
+        for (int level = 0; level < depth; level++) {
+            if (level > 0) {
+                cursor.append('.');
+            }
+            cursor.append(Integer.toString(next[level] - 1, Character.MAX_RADIX));
+        }
+        return cursor.toString();
+    }
+
+    private void add(Comment comment, int parentId, int depth) {
+        if (size == ids.length) {
+            grow();
+        }
+        ids[size] = comment.getSequentialID();
+        parentIds[size] = parentId;
+        depths[size] = depth;
+        handles[size] = comment.getAccount().getHandle();
+        messages[size] = comment.getMessage();
+        endorsementCounts[size] = comment.getEndorsements().size();
+        commentCounts[size] = comment.getComments().size();
+        size++;
+    }
+
+    private void grow() {
+        int capacity = size * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        parentIds = Arrays.copyOf(parentIds, capacity);
+        depths = Arrays.copyOf(depths, capacity);
+        handles = Arrays.copyOf(handles, capacity);
+        messages = Arrays.copyOf(messages, capacity);
+        endorsementCounts = Arrays.copyOf(endorsementCounts, capacity);
+        commentCounts = Arrays.copyOf(commentCounts, capacity);
+    }
+
+    /**
+     * Gets the number of comments on the page
+     * @return an integer of the no. comments, at most the limit the page was read with
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the sequential ID of a comment
+     * @param i the index of the comment on the page
+     * @return the ID of the comment, or 0 if it was replaced by the generic empty post
+     */
+    public int getId(int i) {
+        checkIndex(i);
+        return ids[i];
+    }
+
+    /**
+     * Gets the post or comment a comment replies to
+     * @param i the index of the comment on the page
+     * @return the sequential ID of the post or comment above it
+     */
+    public int getParentId(int i) {
+        checkIndex(i);
+        return parentIds[i];
+    }
+
+    /**
+     * Gets how far below the post a comment is
+     * @param i the index of the comment on the page
+     * @return 1 for a comment on the post itself, 2 for a comment on one of those, and so on
+     */
+    public int getDepth(int i) {
+        checkIndex(i);
+        return depths[i];
+    }
+
+    /**
+     * Gets the handle of the account that made a comment
+     * @param i the index of the comment on the page
+     * @return the handle the account had when the page was read
+     */
+    public String getHandle(int i) {
+        checkIndex(i);
+        return handles[i];
+    }
+
+    /**
+     * Gets the message of a comment
+     * @param i the index of the comment on the page
+     * @return the message of the comment
+     */
+    public String getMessage(int i) {
+        checkIndex(i);
+        return messages[i];
+    }
+
+    /**
+     * Gets the number of endorsements a comment has
+     * @param i the index of the comment on the page
+     * @return an integer of the no. endorsements when the page was read
+     */
+    public int getEndorsementCount(int i) {
+        checkIndex(i);
+        return endorsementCounts[i];
+    }
+
+    /**
+     * Gets the number of comments made on a comment
+     * @param i the index of the comment on the page
+     * @return an integer of the no. comments directly below it when the page was read
+     */
+    public int getCommentCount(int i) {
+        checkIndex(i);
+        return commentCounts[i];
+    }
+
+    /**
+     * Gets the cursor the next page starts from
+     * @return the cursor to pass to the next call, or null if this page ends the thread
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Checks whether another page follows this one
+     * @return true if the thread has comments after this page and false if not
+     */
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " is not on a page of " + size + " comments");
+        }
+    }
+}
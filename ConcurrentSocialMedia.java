@@ -0,0 +1,674 @@
+package socialmedia;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * ConcurrentSocialMedia is a thread safe implementor of the
+ * SocialMediaPlatform interface. It wraps a SocialMedia platform behind a
+ * platform lock and a set of account locks. Posting, endorsing, commenting,
+ * updating a description and showing an account or post hold the platform
+ * lock shared and the lock of each account they touch, so changes to
+ * different accounts run in parallel. Everything that reaches across the
+ * whole platform, such as creating or removing accounts, deleting posts,
+ * batches and saving or loading, holds the platform lock exclusively, and
+ * every call takes effect atomically at a single point while it holds its
+ * locks.
+ * <p>
+ * The account locks are striped: an account ID picks one of a fixed number of
+ * locks, and a call touching two accounts takes their stripes in ascending
+ * order, so two calls can never wait on each other. The platform wide state
+ * these calls share is concurrent itself: the post index is a
+ * StripedIntHashMap, the totals are LongAdders, the rankings and the change
+ * set are synchronized, and the comments and counts of a thread are guarded by
+ * the post at its top.
+ *
+ * @author Pierre Siddall and Priya Shah
+ * @version 1.0
+ */
+
+public class ConcurrentSocialMedia implements SocialMediaPlatform {
+	private static final long serialVersionUID = 1L; //Serializable comes with SocialMediaPlatform, which cannot drop it
+	private final SocialMedia platform = new SocialMedia(true);
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Lock readLock = lock.readLock();
+	private final Lock writeLock = lock.writeLock();
+	private static final int STRIPES = 64; //one bit of a long per stripe, and a power of two so an ID picks its stripe with a mask
+	private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+	private static final ExecutorService ACCOUNT_REMOVER = Executors.newSingleThreadExecutor(task -> {
+		Thread thread = new Thread(task, "socialmedia-account-remover");
+		thread.setDaemon(true);
+		return thread;
+	}); //finishes the removals removeAccountAsync starts
+
+	/**
+	 * Constructor for an empty platform
+	 */
+	public ConcurrentSocialMedia() {
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * Takes the platform lock shared once the platform is in memory. Materialising a mapped snapshot replaces
+	 * every account, so it is done under the exclusive lock, and the platform cannot change between mapped and
+	 * in memory while the shared lock is held
+	 */
+	private void lockMaterialised() {
+		readLock.lock();
+		if (platform.isMapped()) {
+			readLock.unlock(); //a read lock cannot be upgraded
+			writeLock.lock();
+			try {
+				platform.materialise();
+				readLock.lock(); //downgraded, so the platform cannot be mapped again before the caller runs
+			} finally {
+				writeLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Gets the stripe of an account as a bit, so the stripes of several accounts combine into one mask
+	 * @param account the Account, or null for none
+	 * @return a long with the bit of the account's stripe set, or 0 if there is no account
+	 */
+	private static long stripeOf(Account account) {
+		return account == null ? 0 : 1L << (account.getUniqueID() & (STRIPES - 1));
+	}
+
+	/**
+	 * Takes the stripes of a mask in ascending order, with the platform lock already held shared. Accounts
+	 * sharing a stripe take it only once
+	 * @param held the stripes as bits
+	 * @return the same mask, for unlockStripes
+	 */
+	private long lockStripes(long held) {
+		for (long rest = held; rest != 0; rest &= rest - 1) {
+			stripes[Long.numberOfTrailingZeros(rest)].lock();
+		}
+		return held;
+	}
+
+	/**
+	 * Releases the stripes of a mask and then the shared platform lock
+	 * @param held the stripes lockStripes took
+	 */
+	private void unlockStripes(long held) {
+		for (long rest = held; rest != 0; rest &= rest - 1) {
+			stripes[Long.numberOfTrailingZeros(rest)].unlock();
+		}
+		readLock.unlock();
+	}
+
+	/**
+	 * Takes the locks a change made by an account needs: the platform lock shared, the stripe of the account
+	 * and the stripe of the account whose post it is made on. An unknown handle or post takes no stripe, and
+	 * the platform rejects the change
+	 * @param handle the handle of the account making the change
+	 * @param id the sequential ID of the post the change is made on, or 0 for none
+	 * @return the stripes taken, for unlockStripes
+	 */
+	private long lockAccounts(String handle, int id) {
+		lockMaterialised();
+		try {
+			long held = stripeOf(platform.getAccount(handle));
+			if (id != 0) {
+				held |= stripeOf(platform.getAccountByPostId(id)); //the author of a post never changes under the shared lock
+			}
+			return lockStripes(held);
+		} catch (RuntimeException e) {
+			readLock.unlock();
+			throw e;
+		}
+	}
+
+	/**
+	 * Takes the locks showing an account needs: the platform lock shared and the stripe of the account. A
+	 * mapped snapshot answers by itself, so the platform is not materialised first
+	 * @param handle the handle of the account
+	 * @return the stripes taken, for unlockStripes
+	 */
+	private long lockAccount(String handle) {
+		readLock.lock();
+		return lockStripes(stripeOf(platform.getAccount(handle)));
+	}
+
+	/**
+	 * Takes the locks showing an account needs, as lockAccount(String) does
+	 * @param id the unique ID of the account
+	 * @return the stripes taken, for unlockStripes
+	 */
+	private long lockAccount(int id) {
+		readLock.lock();
+		return lockStripes(stripeOf(platform.getAccount(id)));
+	}
+
+	/**
+	 * Takes the locks showing a post needs: the platform lock shared and the stripe of its author, under
+	 * which its comments and endorsements are added
+	 * @param id the sequential ID of the post
+	 * @return the stripes taken, for unlockStripes
+	 */
+	private long lockAuthor(int id) {
+		readLock.lock();
+		return lockStripes(stripeOf(platform.getAccountByPostId(id)));
+	}
+
+	@Override
+	public int createAccount(String handle) throws IllegalHandleException, InvalidHandleException {
+		writeLock.lock();
+		try {
+			return platform.createAccount(handle);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public int createAccount(String handle, String description) throws IllegalHandleException, InvalidHandleException {
+		writeLock.lock();
+		try {
+			return platform.createAccount(handle, description);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public void removeAccount(int id) throws AccountIDNotRecognisedException {
+		writeLock.lock();
+		try {
+			platform.removeAccount(id);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public void removeAccount(String handle) throws HandleNotRecognisedException {
+		writeLock.lock();
+		try {
+			platform.removeAccount(handle);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public CompletableFuture<Void> removeAccountAsync(int id) throws AccountIDNotRecognisedException {
+		CompletableFuture<Void> removed;
+		writeLock.lock();
+		try {
+			removed = platform.removeAccountAsync(id);
+		} finally {
+			writeLock.unlock();
+		}
+		ACCOUNT_REMOVER.execute(this::finishAccountRemovals); //the posts are removed once the write lock is free again
+		return removed;
+	}
+
+	@Override
+	public void finishAccountRemovals() {
+		writeLock.lock();
+		try {
+			platform.finishAccountRemovals();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public void changeAccountHandle(String oldHandle, String newHandle)
+			throws HandleNotRecognisedException, IllegalHandleException, InvalidHandleException {
+		writeLock.lock();
+		try {
+			platform.changeAccountHandle(oldHandle, newHandle);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public void updateAccountDescription(String handle, String description) throws HandleNotRecognisedException {
+		long held = lockAccounts(handle, 0);
+		try {
+			platform.updateAccountDescription(handle, description);
+		} finally {
+			unlockStripes(held);
+		}
+	}
+
+	@Override
+	public String showAccount(String handle) throws HandleNotRecognisedException {
+		long held = lockAccount(handle);
+		try {
+			return platform.showAccount(handle);
+		} finally {
+			unlockStripes(held);
+		}
+	}
+
+	@Override
+	public String showAccount(int id) throws AccountIDNotRecognisedException {
+		long held = lockAccount(id);
+		try {
+			return platform.showAccount(id);
+		} finally {
+			unlockStripes(held);
+		}
+	}
+
+	@Override
+	public int createPost(String handle, String message) throws HandleNotRecognisedException, InvalidPostException {
+		long held = lockAccounts(handle, 0); //posts by different accounts are made in parallel
+		try {
+			return platform.createPost(handle, message);
+		} finally {
+			unlockStripes(held);
+		}
+	}
+
+	@Override
+	public int endorsePost(String handle, int id)
+			throws HandleNotRecognisedException, PostIDNotRecognisedException, NotActionablePostException {
+		long held = lockAccounts(handle, id);
+		try {
+			return platform.endorsePost(handle, id);
+		} finally {
+			unlockStripes(held);
+		}
+	}
+
+	@Override
+	public int commentPost(String handle, int id, String message) throws HandleNotRecognisedException,
+			PostIDNotRecognisedException, NotActionablePostException, InvalidPostException {
+		long held = lockAccounts(handle, id);
+		try {
+			return platform.commentPost(handle, id, message);
+		} finally {
+			unlockStripes(held);
+		}
+	}
+
+	@Override
+	public BatchResult createAccounts(String[] handles, String[] descriptions) {
+		writeLock.lock(); //the whole batch is validated and applied under one acquisition
+		try {
+			return platform.createAccounts(handles, descriptions);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public BatchResult createPosts(String[] handles, String[] messages) {
+		writeLock.lock();
+		try {
+			return platform.createPosts(handles, messages);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public BatchResult endorsePosts(String[] handles, int[] ids) {
+		writeLock.lock();
+		try {
+			return platform.endorsePosts(handles, ids);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public BatchResult commentPosts(String[] handles, int[] ids, String[] messages) {
+		writeLock.lock();
+		try {
+			return platform.commentPosts(handles, ids, messages);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public void deletePost(int id) throws PostIDNotRecognisedException {
+		writeLock.lock();
+		try {
+			platform.deletePost(id);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public String showIndividualPost(int id) throws PostIDNotRecognisedException {
+		long held = lockAuthor(id);
+		try {
+			return platform.showIndividualPost(id);
+		} finally {
+			unlockStripes(held);
+		}
+	}
+
+	@Override
+	public StringBuilder showPostChildrenDetails(int id) throws PostIDNotRecognisedException, NotActionablePostException {
+		writeLock.lock(); //rendering the children records the indentation on each post, so it cannot share the read lock
+		try {
+			return platform.showPostChildrenDetails(id);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public void showPostChildrenDetails(int id, Appendable out)
+			throws PostIDNotRecognisedException, NotActionablePostException, IOException {
+		writeLock.lock();
+		try {
+			platform.showPostChildrenDetails(id, out);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public int getNumberOfAccounts() {
+		readLock.lock();
+		try {
+			return platform.getNumberOfAccounts();
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public int getTotalOriginalPosts() {
+		readLock.lock();
+		try {
+			return platform.getTotalOriginalPosts();
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public int getTotalEndorsmentPosts() {
+		readLock.lock();
+		try {
+			return platform.getTotalEndorsmentPosts();
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public int getTotalCommentPosts() {
+		readLock.lock();
+		try {
+			return platform.getTotalCommentPosts();
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public int getMostEndorsedPost() {
+		readLock.lock();
+		try {
+			return platform.getMostEndorsedPost();
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public int getMostEndorsedAccount() {
+		readLock.lock();
+		try {
+			return platform.getMostEndorsedAccount();
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public int[] getMostEndorsedPosts(int k) {
+		lockMaterialised();
+		try {
+			return platform.getMostEndorsedPosts(k);
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public int[] getMostEndorsedAccounts(int k) {
+		lockMaterialised();
+		try {
+			return platform.getMostEndorsedAccounts(k);
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public int getThreadCommentCount(int id) throws PostIDNotRecognisedException, NotActionablePostException {
+		lockMaterialised();
+		try {
+			return platform.getThreadCommentCount(id);
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public int getThreadDepth(int id) throws PostIDNotRecognisedException, NotActionablePostException {
+		lockMaterialised();
+		try {
+			return platform.getThreadDepth(id);
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public int getThreadEndorsementCount(int id) throws PostIDNotRecognisedException, NotActionablePostException {
+		lockMaterialised();
+		try {
+			return platform.getThreadEndorsementCount(id);
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public CommentPage showPostChildrenPage(int id, String cursor, int limit)
+			throws PostIDNotRecognisedException, NotActionablePostException {
+		lockMaterialised(); //a page is read without recording indentation on the posts, so it can share the platform lock
+		try {
+			return platform.showPostChildrenPage(id, cursor, limit);
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public void setViewCacheCapacity(int capacity) {
+		writeLock.lock();
+		try {
+			platform.setViewCacheCapacity(capacity);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public long getViewCacheHits() {
+		return platform.getViewCacheHits(); //the cache keeps its own counters in step
+	}
+
+	@Override
+	public long getViewCacheMisses() {
+		return platform.getViewCacheMisses();
+	}
+
+	@Override
+	public long getViewCacheEvictions() {
+		return platform.getViewCacheEvictions();
+	}
+
+	@Override
+	public void erasePlatform() {
+		writeLock.lock();
+		try {
+			platform.erasePlatform();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public void savePlatform(String filename) throws IOException {
+		try {
+			savePlatformAsync(filename).join(); //only the copy is made under the lock, the file is written outside it
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	@Override
+	public CompletableFuture<Void> savePlatformAsync(String filename) {
+		writeLock.lock(); //copying the platform clears the changes an incremental save would write, so every change waits for the copy
+		try {
+			return platform.savePlatformAsync(filename);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public void savePlatformCompressed(String filename, int codec) throws IOException {
+		writeLock.lock();
+		try {
+			platform.savePlatformCompressed(filename, codec);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public void savePlatformSharded(String filename, int shards) throws IOException {
+		writeLock.lock();
+		try {
+			platform.savePlatformSharded(filename, shards);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public int exportPlatform(String filename) throws IOException {
+		while (true) {
+			lockMaterialised();
+			try {
+				if (!platform.hasPendingRemovals()) { //exporting would finish them, which needs the write lock
+					return platform.exportPlatform(filename);
+				}
+			} finally {
+				readLock.unlock();
+			}
+			finishAccountRemovals();
+		}
+	}
+
+	@Override
+	public int importPlatform(String filename) throws IOException {
+		writeLock.lock();
+		try {
+			return platform.importPlatform(filename);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public void savePlatformIncremental(String filename) throws IOException {
+		writeLock.lock();
+		try {
+			platform.savePlatformIncremental(filename);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public void compactPlatform(String filename) throws IOException {
+		writeLock.lock();
+		try {
+			platform.compactPlatform(filename);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public void loadPlatform(String filename) throws IOException, ClassNotFoundException {
+		writeLock.lock();
+		try {
+			platform.loadPlatform(filename);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public void loadPlatformMapped(String filename) throws IOException, ClassNotFoundException {
+		writeLock.lock();
+		try {
+			platform.loadPlatformMapped(filename);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public void openJournal(String filename) throws IOException {
+		writeLock.lock();
+		try {
+			platform.openJournal(filename);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public void syncJournal() throws IOException {
+		readLock.lock(); //the journal orders its own appends and syncs
+		try {
+			platform.syncJournal();
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public void closeJournal() throws IOException {
+		writeLock.lock();
+		try {
+			platform.closeJournal();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+}
@@ -20,7 +20,6 @@ public class Endorsement extends Post{
      * @param account the account that is endorsing the post
      */
     public Endorsement(Post post, Account account){
-        sequentialID = ++SEQID;
         this.post=post;
         this.message = post.getMessage();
         this.account = account;
@@ -0,0 +1,234 @@
+package socialmedia;
+
+import java.io.Serializable;
+
+/**
+ *
+ * The EndorsementRanking class keeps IDs ordered by their number of endorsements in an indexed binary heap,
+ * so the leader is always at the top and the score of any ID can be changed in logarithmic time.
+ * Ties are broken in favour of the lower ID, and IDs whose score drops to zero leave the ranking. Its methods
+ * are synchronized, as endorsements made by different accounts may be ranked at the same time
+ *
+ * @author Pierre Siddall and Priya Shah
+ * @version 1.0
+ */
+
+public class EndorsementRanking implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private Entry[] heap = new Entry[16];
+    private int size = 0;
+    private IntHashMap<Entry> entries = new IntHashMap<>();
+
+    /**
+     * A ranked ID together with its score and its current position in the heap
+     */
+    private static class Entry implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final int id;
+        private int score;
+        private int position;
+
+        private Entry(int id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Changes the score of an ID, adding it to the ranking if needed
+     * @param id the identifier of the Post or Account being ranked
+     * @param delta the change in the number of endorsements
+     */
+    public synchronized void adjust(int id, int delta){
+        if (delta == 0){
+            return;
+        }
+        Entry entry = entries.get(id);
+        if (entry == null){
+            if (delta < 0){
+                return;
+            }
+            entry = new Entry(id);
+            entries.put(id, entry);
+            if (size == heap.length){
+                Entry[] grown = new Entry[size << 1];
+                System.arraycopy(heap, 0, grown, 0, size);
+                heap = grown;
+            }
+            entry.position = size;
+            heap[size++] = entry;
+        }
+        entry.score += delta;
+        if (entry.score <= 0){
+            remove(id);
+        } else if (delta > 0){
+            siftUp(entry.position);
+        } else {
+            siftDown(entry.position);
+        }
+    }
+
+    /**
+     * Removes an ID from the ranking
+     * @param id the identifier of the Post or Account being removed
+     */
+    public synchronized void remove(int id){
+        Entry entry = entries.remove(id);
+        if (entry == null){
+            return;
+        }
+        int position = entry.position;
+        Entry last = heap[--size];
+        heap[size] = null;
+        if (position < size){ //moves the last entry into the freed slot and restores the heap order
+            heap[position] = last;
+            last.position = position;
+            siftDown(position);
+            siftUp(last.position);
+        }
+    }
+
+    /**
+     * Gets the score of an ID
+     * @param id the identifier of the Post or Account
+     * @return an integer of the no. endorsements recorded for the ID
+     */
+    public synchronized int getScore(int id){
+        Entry entry = entries.get(id);
+        return entry == null ? 0 : entry.score;
+    }
+
+    /**
+     * Gets the ID at the top of the ranking
+     * @return the ID with the most endorsements, or 0 if nothing has been endorsed
+     */
+    public synchronized int getLeader(){
+        return size == 0 ? 0 : heap[0].id;
+    }
+
+    /**
+     * Gets the highest ranked IDs in order, by walking the heap with a second heap of candidates
+     * @param k the maximum number of IDs to return
+     * @return an array of at most k IDs, the most endorsed first
+     */
+    public synchronized int[] getTop(int k){
+        int count = Math.max(0, Math.min(k, size));
+        int[] top = new int[count];
+        if (count == 0){
+            return top;
+        }
+        int[] candidates = new int[2 * count + 1]; //heap positions that may be next in the ranking
+        int candidateCount = 0;
+        candidates[candidateCount++] = 0;
+        for (int i = 0; i < count; i++){
+            int best = candidates[0];
+            candidates[0] = candidates[--candidateCount];
+            siftDownCandidates(candidates, candidateCount, 0);
+            top[i] = heap[best].id;
+            for (int child = 2 * best + 1; child <= 2 * best + 2 && child < size; child++){
+                candidates[candidateCount] = child;
+                siftUpCandidates(candidates, candidateCount++);
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Gets the number of IDs in the ranking
+     * @return an integer of the no. IDs with at least one endorsement
+     */
+    public synchronized int size(){
+        return size;
+    }
+
+    /**
+     * Removes every ID from the ranking
+     */
+    public synchronized void clear(){
+        heap = new Entry[16];
+        size = 0;
+        entries.clear();
+    }
+
+    /**
+     * Checks whether the entry at one heap position ranks above the entry at another
+     * @param a the first heap position
+     * @param b the second heap position
+     * @return true if the entry at a has more endorsements, or the same number and a lower ID
+     */
+    private boolean ranksAbove(int a, int b){
+        Entry x = heap[a];
+        Entry y = heap[b];
+        return x.score > y.score || (x.score == y.score && x.id < y.id);
+    }
+
+    private void siftUp(int position){
+        while (position > 0){
+            int parent = (position - 1) >>> 1;
+            if (!ranksAbove(position, parent)){
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position){
+        while (true){
+            int best = position;
+            int left = 2 * position + 1;
+            if (left < size && ranksAbove(left, best)){
+                best = left;
+            }
+            if (left + 1 < size && ranksAbove(left + 1, best)){
+                best = left + 1;
+            }
+            if (best == position){
+                return;
+            }
+            swap(position, best);
+            position = best;
+        }
+    }
+
+    private void swap(int a, int b){
+        Entry entry = heap[a];
+        heap[a] = heap[b];
+        heap[b] = entry;
+        heap[a].position = a;
+        heap[b].position = b;
+    }
+
+    private void siftUpCandidates(int[] candidates, int position){
+        while (position > 0){
+            int parent = (position - 1) >>> 1;
+            if (!ranksAbove(candidates[position], candidates[parent])){
+                return;
+            }
+            int swap = candidates[position];
+            candidates[position] = candidates[parent];
+            candidates[parent] = swap;
+            position = parent;
+        }
+    }
+
+    private void siftDownCandidates(int[] candidates, int count, int position){
+        while (true){
+            int best = position;
+            int left = 2 * position + 1;
+            if (left < count && ranksAbove(candidates[left], candidates[best])){
+                best = left;
+            }
+            if (left + 1 < count && ranksAbove(candidates[left + 1], candidates[best])){
+                best = left + 1;
+            }
+            if (best == position){
+                return;
+            }
+            int swap = candidates[position];
+            candidates[position] = candidates[best];
+            candidates[best] = swap;
+            position = best;
+        }
+    }
+}
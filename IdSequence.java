@@ -0,0 +1,52 @@
+package socialmedia;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * The IdSequence class hands out the sequential IDs of one platform. Each SocialMedia owns its own
+ * sequences, so several platforms in the same JVM never share or reset each other's IDs.
+ * Allocation is a single atomic increment, which neither locks nor allocates
+ *
+ * @author Pierre Siddall and Priya Shah
+ * @version 1.0
+ */
+
+public class IdSequence implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final AtomicInteger last = new AtomicInteger();
+
+    /**
+     * Allocates the next ID of the sequence
+     * @return an integer one greater than the last ID allocated
+     */
+    public int next(){
+        return last.incrementAndGet();
+    }
+
+    /**
+     * Allocates a block of consecutive IDs at once
+     * @param count the number of IDs to allocate
+     * @return the first ID of the block, the rest follow on from it
+     */
+    public int allocate(int count){
+        return last.getAndAdd(count) + 1;
+    }
+
+    /**
+     * Gets the last ID that was allocated
+     * @return an integer of the last ID, or 0 if none has been allocated
+     */
+    public int getLast(){
+        return last.get();
+    }
+
+    /**
+     * Sets the last ID that was allocated, so the sequence continues after it
+     * @param lastId the integer that the next ID follows on from
+     */
+    public void reset(int lastId){
+        last.set(lastId);
+    }
+}
@@ -0,0 +1,214 @@
+package socialmedia;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ *
+ * The IntHashMap class maps primitive integer keys to values using open addressing with linear probing,
+ * so that lookups by ID do not box the key or allocate an entry object per mapping
+ *
+ * @author Pierre Siddall and Priya Shah
+ * @version 1.0
+ */
+
+public class IntHashMap<V> implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int EMPTY = 0; //key 0 marks a free slot, so it is stored separately
+    private int[] keys;
+    private Object[] values;
+    private int size = 0;
+    private boolean hasZeroKey = false;
+    private Object zeroValue = null;
+
+    /**
+     * Constructor for an empty map
+     */
+    public IntHashMap(){
+        this(16);
+    }
+
+    /**
+     * Constructor for an empty map that can hold the expected number of mappings without resizing
+     * @param expectedSize the number of mappings the map is expected to hold
+     */
+    public IntHashMap(int expectedSize){
+        int capacity = 16;
+        while (capacity * 3 / 4 < expectedSize){
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    /**
+     * Gets the value mapped to a key
+     * @param key the integer key
+     * @return the value mapped to the key, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key){
+        if (key == EMPTY){
+            return (V) zeroValue;
+        }
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask){
+            if (keys[i] == key){
+                return (V) values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a key is mapped
+     * @param key the integer key
+     * @return true if the key has a mapping and false if not
+     */
+    public boolean containsKey(int key){
+        if (key == EMPTY){
+            return hasZeroKey;
+        }
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask){
+            if (keys[i] == key){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Maps a key to a value, replacing any previous mapping
+     * @param key the integer key
+     * @param value the value to map the key to
+     * @return the previous value mapped to the key, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value){
+        if (key == EMPTY){
+            V previous = (V) zeroValue;
+            if (!hasZeroKey){
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return previous;
+        }
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        for (; keys[i] != EMPTY; i = (i + 1) & mask){
+            if (keys[i] == key){
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length * 3 / 4){ //keeps the load factor under 0.75
+            resize(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the mapping of a key
+     * @param key the integer key
+     * @return the value that was mapped to the key, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key){
+        if (key == EMPTY){
+            V previous = (V) zeroValue;
+            if (hasZeroKey){
+                hasZeroKey = false;
+                zeroValue = null;
+                size--;
+            }
+            return previous;
+        }
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask){
+            if (keys[i] == key){
+                V previous = (V) values[i];
+                shiftBack(i);
+                size--;
+                return previous;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the number of mappings
+     * @return an integer of the no. keys that are mapped
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Removes every mapping from the map
+     */
+    public void clear(){
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, null);
+        hasZeroKey = false;
+        zeroValue = null;
+        size = 0;
+    }
+
+    /**
+     * Closes the gap left by a removed slot by moving back the entries that probed past it
+     * @param gap the index of the slot that was freed
+     */
+    private void shiftBack(int gap){
+        int mask = keys.length - 1;
+        int i = (gap + 1) & mask;
+        while (keys[i] != EMPTY){
+            int home = mix(keys[i]) & mask;
+            //the entry can only fill the gap if its home slot is not between the gap and itself
+            if (((i - home) & mask) >= ((i - gap) & mask)){
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        values[gap] = null;
+    }
+
+    /**
+     * Doubles the capacity of the map and re-inserts every entry
+     * @param capacity the new number of slots, always a power of two
+     */
+    private void resize(int capacity){
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++){
+            if (oldKeys[j] != EMPTY){
+                int i = mix(oldKeys[j]) & mask;
+                while (keys[i] != EMPTY){
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /**
+     * Spreads sequential IDs across the table so they do not form long probe runs
+     * @param key the integer key
+     * @return the scrambled hash of the key
+     */
+    private static int mix(int key){
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,297 @@
+package socialmedia;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ *
+ * The LineFormat class writes and parses the line delimited text format platforms are exported to and imported
+ * from. Each line holds one record, its fields separated by tabs: the kind of record, then its ID and the fields
+ * of that kind. Tabs, line breaks and backslashes inside fields are escaped with a backslash, and \N stands for a
+ * missing description. Posts are written in the order of their IDs, so a post always comes before the comments
+ * and endorsements that refer to it, and a file can be read one line at a time
+ *
+ * @author Pierre Siddall and Priya Shah
+ * @version 1.0
+ */
+
+public class LineFormat {
+    public static final char ACCOUNT = 'A'; //A id handle description
+    public static final char POST = 'P'; //P id author message
+    public static final char COMMENT = 'C'; //C id author parent message
+    public static final char ENDORSEMENT = 'E'; //E id author parent
+    public static final char REMOVED = 'R'; //R id author parent, a post replaced by the generic empty post
+    private static final String NULL = "\\N";
+
+    /**
+     * Writes every record of a snapshot, accounts first and then posts in the order of their IDs
+     * @param snapshot the records to write
+     * @param out the Writer the lines are written to, which is not closed
+     * @return the number of records written
+     * @throws IOException if the Writer cannot be written to
+     */
+    public static int write(PlatformSnapshot snapshot, Writer out) throws IOException {
+        StringBuilder line = new StringBuilder(256); //reused for every record
+        for (int i = 0; i < snapshot.getAccountCount(); i++) {
+            line.setLength(0);
+            line.append(ACCOUNT).append('\t').append(snapshot.getAccountId(i)).append('\t');
+            escape(snapshot.getHandle(i), line);
+            line.append('\t');
+            escape(snapshot.getDescription(i), line);
+            out.append(line.append('\n'));
+        }
+        int[] order = snapshot.postOrder();
+        for (int i : order) {
+            line.setLength(0);
+            byte kind = snapshot.getKind(i);
+            switch (kind) {
+                case PlatformSnapshot.POST:
+                    line.append(POST).append('\t').append(snapshot.getPostId(i)).append('\t').append(snapshot.getAuthor(i));
+                    break;
+                case PlatformSnapshot.COMMENT:
+                    line.append(COMMENT).append('\t').append(snapshot.getPostId(i)).append('\t').append(snapshot.getAuthor(i))
+                            .append('\t').append(snapshot.getParent(i));
+                    break;
+                case PlatformSnapshot.ENDORSEMENT:
+                    line.append(ENDORSEMENT).append('\t').append(snapshot.getPostId(i)).append('\t')
+                            .append(snapshot.getAuthor(i)).append('\t').append(snapshot.getParent(i));
+                    break;
+                default: //a post or comment replaced by the generic empty post, which only has a parent if it was a comment
+                    line.append(REMOVED).append('\t').append(snapshot.getPostId(i)).append('\t').append(snapshot.getAuthor(i))
+                            .append('\t').append(kind == PlatformSnapshot.REMOVED_COMMENT ? snapshot.getParent(i) : 0);
+                    break;
+            }
+            if (kind == PlatformSnapshot.POST || kind == PlatformSnapshot.COMMENT) {
+                line.append('\t');
+                escape(snapshot.getMessage(i), line);
+            }
+            out.append(line.append('\n'));
+        }
+        return snapshot.getAccountCount() + order.length;
+    }
+
+    private static void escape(String value, StringBuilder line) {
+        if (value == null) {
+            line.append(NULL);
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                default:
+                    line.append(c);
+            }
+        }
+    }
+
+    /**
+     * The Parser class reads records one line at a time, keeping only the record it has just read
+     */
+    public static class Parser {
+        private final BufferedReader in;
+        private final StringBuilder field = new StringBuilder(256);
+        private long lineNumber = 0;
+        private String line;
+        private int position;
+        private char kind;
+        private int id;
+        private int author;
+        private int parent;
+        private String text;
+        private String description;
+
+        /**
+         * Constructor for a parser
+         * @param in the reader the lines are read from
+         */
+        public Parser(BufferedReader in) {
+            this.in = in;
+        }
+
+        /**
+         * Reads the next record, skipping blank lines
+         * @return true if a record was read, and false at the end of the input
+         * @throws IOException if the input cannot be read or the line is malformed
+         */
+        public boolean next() throws IOException {
+            do {
+                line = in.readLine();
+                if (line == null) {
+                    return false;
+                }
+                lineNumber++;
+            } while (line.isEmpty());
+            kind = line.charAt(0);
+            if (line.length() < 2 || line.charAt(1) != '\t') {
+                throw error("does not start with a kind of record");
+            }
+            position = 2;
+            id = readInt();
+            author = 0;
+            parent = 0;
+            text = null;
+            description = null;
+            switch (kind) {
+                case ACCOUNT:
+                    text = readString();
+                    description = readString();
+                    break;
+                case POST:
+                    author = readInt();
+                    text = readString();
+                    break;
+                case COMMENT:
+                    author = readInt();
+                    parent = readInt();
+                    text = readString();
+                    break;
+                case ENDORSEMENT:
+                case REMOVED:
+                    author = readInt();
+                    parent = readInt();
+                    break;
+                default:
+                    throw error("has an unknown kind of record " + kind);
+            }
+            if (position <= line.length()) {
+                throw error("has more fields than a record of kind " + kind);
+            }
+            return true;
+        }
+
+        /**
+         * Builds an exception for the line just read
+         * @param problem what is wrong with the line
+         * @return an IOException naming the line
+         */
+        public IOException error(String problem) {
+            return new IOException("Line " + lineNumber + " " + problem);
+        }
+
+        /**
+         * Gets the kind of the record
+         * @return one of the kinds of record above
+         */
+        public char getKind() {
+            return kind;
+        }
+
+        /**
+         * Gets the ID the record had in the platform it was exported from
+         * @return the unique ID of an account or the reference ID of a post
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Gets the account that made a post record
+         * @return the exported unique ID of the account, or 0 for a removed post whose account was removed
+         */
+        public int getAuthor() {
+            return author;
+        }
+
+        /**
+         * Gets the post a comment, endorsement or removed comment refers to
+         * @return the exported reference ID of the post, or 0 if the record refers to none
+         */
+        public int getParent() {
+            return parent;
+        }
+
+        /**
+         * Gets the handle of an account record or the message of a post or comment record
+         * @return the unescaped text
+         */
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * Gets the description of an account record
+         * @return the unescaped description, or null if the account has none
+         */
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * Finds the end of the field that starts at the current position
+         */
+        private int fieldEnd() throws IOException {
+            if (position > line.length()) {
+                throw error("has fewer fields than a record of kind " + kind);
+            }
+            int end = line.indexOf('\t', position);
+            return end < 0 ? line.length() : end;
+        }
+
+        private int readInt() throws IOException {
+            int end = fieldEnd();
+            try {
+                int value = Integer.parseInt(line, position, end, 10);
+                position = end + 1;
+                return value;
+            } catch (NumberFormatException e) {
+                throw error("has a malformed number " + line.substring(position, end));
+            }
+        }
+
+        private String readString() throws IOException {
+            int end = fieldEnd();
+            if (end - position == NULL.length() && line.startsWith(NULL, position)) {
+                position = end + 1;
+                return null;
+            }
+            int backslash = line.indexOf('\\', position);
+            if (backslash < 0 || backslash >= end) {
+                String value = line.substring(position, end); //nothing to unescape
+                position = end + 1;
+                return value;
+            }
+            field.setLength(0);
+            for (int i = position; i < end; i++) {
+                char c = line.charAt(i);
+                if (c != '\\') {
+                    field.append(c);
+                    continue;
+                }
+                if (++i == end) {
+                    throw error("ends a field with a backslash");
+                }
+                switch (line.charAt(i)) {
+                    case '\\':
+                        field.append('\\');
+                        break;
+                    case 't':
+                        field.append('\t');
+                        break;
+                    case 'n':
+                        field.append('\n');
+                        break;
+                    case 'r':
+                        field.append('\r');
+                        break;
+                    default:
+                        throw error("has an unknown escape \\" + line.charAt(i));
+                }
+            }
+            position = end + 1;
+            return field.toString();
+        }
+    }
+}
@@ -0,0 +1,521 @@
+package socialmedia;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ *
+ * The MappedSnapshot class memory maps a binary snapshot and answers the read only queries of a platform straight
+ * from the mapped bytes. Opening it makes one pass over the records without creating any objects, recording the
+ * offset of every account and post by ID along with the counts the formatted views need. A record is only decoded
+ * when a query asks for it, and the whole platform is only built when read() is called
+ *
+ * @author Pierre Siddall and Priya Shah
+ * @version 1.0
+ */
+
+public class MappedSnapshot {
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private int lastAccountId;
+    private int lastPostId;
+    private long journalSequence = 0;
+
+    private int[] accountOffsets; //by account ID, -1 where there is no account
+    private int[] accountPostCounts; //posts, comments and endorsements held by each account
+    private int[] accountEndorsementCounts; //endorsements made by each account
+    private int[] accountEndorsementsReceived;
+    private int[] postOffsets; //by post ID, -1 where there is no live post
+    private int[] postAuthors;
+    private int[] postEndorsementCounts;
+    private int[] postCommentCounts;
+    private HashMap<String, Integer> handles = null; //built on the first query by handle
+
+    private int accountCount = 0;
+    private int originalPostCount = 0;
+    private int commentCount = 0;
+    private int endorsementCount = 0;
+    private int mostEndorsedPost = 0;
+    private int mostEndorsedAccount = 0;
+
+    private MappedSnapshot(Path path, MappedByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Maps a snapshot file and indexes its records
+     * @param filename location of the snapshot file
+     * @return the mapped snapshot, or null if the file does not hold a binary snapshot on its own
+     *         because it is in another format or delta segments follow the snapshot
+     * @throws IOException if the file cannot be mapped or its records are malformed
+     */
+    public static MappedSnapshot open(String filename) throws IOException {
+        Path path = Path.of(filename);
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot is too large to be mapped: " + channel.size() + " bytes");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); //stays valid once the channel is closed
+        }
+        byte[] magic = SnapshotWriter.MAGIC;
+        if (buffer.limit() < magic.length) {
+            return null;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (buffer.get(i) != magic[i]) {
+                return null;
+            }
+        }
+        MappedSnapshot snapshot = new MappedSnapshot(path, buffer);
+        return snapshot.index() ? snapshot : null;
+    }
+
+    /**
+     * Reads the header and makes one pass over the records, filling in the offsets and counts
+     * @return true if the snapshot is the whole file, and false if delta segments follow it
+     */
+    private boolean index() throws IOException {
+        position = SnapshotWriter.MAGIC.length;
+        int version = readVarInt();
+        if (version < 1 || version > SnapshotWriter.VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        lastAccountId = readVarInt();
+        lastPostId = readVarInt();
+        if (version >= 2) {
+            journalSequence = readVarLong();
+        }
+        accountOffsets = filled(lastAccountId + 1);
+        accountPostCounts = new int[lastAccountId + 1];
+        accountEndorsementCounts = new int[lastAccountId + 1];
+        accountEndorsementsReceived = new int[lastAccountId + 1];
+        postOffsets = filled(lastPostId + 1);
+        postAuthors = new int[lastPostId + 1];
+        postEndorsementCounts = new int[lastPostId + 1];
+        postCommentCounts = new int[lastPostId + 1];
+        int[] endorsementTargets = new int[16]; //the posts endorsed, credited to their authors once every post is known
+        while (true) {
+            int offset = position;
+            int tag = readVarInt();
+            if (tag == SnapshotWriter.TAG_END) {
+                if (position < buffer.limit()) {
+                    return false; //the records of the segments would have to be merged
+                }
+                break;
+            }
+            if (tag == SnapshotWriter.TAG_ACCOUNT) {
+                int id = checkAccountId(readVarInt());
+                skipString();
+                if (readVarInt() != 0) {
+                    skipString();
+                }
+                accountOffsets[id] = offset;
+                accountCount++;
+                continue;
+            }
+            byte kind = (byte) tag;
+            int id = checkPostId(readVarInt());
+            int author = checkAccountId(readVarInt());
+            int parent = 0;
+            if (kind == PlatformSnapshot.COMMENT || kind == PlatformSnapshot.ENDORSEMENT
+                    || kind == PlatformSnapshot.REMOVED_COMMENT) {
+                parent = checkPostId(readVarInt());
+            } else if (kind != PlatformSnapshot.POST && kind != PlatformSnapshot.REMOVED_POST) {
+                throw new IOException("Snapshot contains an unknown record tag " + tag);
+            }
+            if (kind == PlatformSnapshot.POST || kind == PlatformSnapshot.COMMENT) {
+                skipString();
+            }
+            if (kind != PlatformSnapshot.REMOVED_POST) {
+                accountPostCounts[author]++; //every other kind is held in its author's set of AllPosts
+            }
+            switch (kind) {
+                case PlatformSnapshot.POST:
+                    originalPostCount++;
+                    break;
+                case PlatformSnapshot.COMMENT:
+                    commentCount++;
+                    postCommentCounts[parent]++;
+                    break;
+                case PlatformSnapshot.REMOVED_COMMENT:
+                    postCommentCounts[parent]++;
+                    break;
+                case PlatformSnapshot.ENDORSEMENT:
+                    endorsementCount++;
+                    accountEndorsementCounts[author]++;
+                    postEndorsementCounts[parent]++;
+                    if (endorsementCount > endorsementTargets.length) {
+                        endorsementTargets = Arrays.copyOf(endorsementTargets, endorsementTargets.length << 1);
+                    }
+                    endorsementTargets[endorsementCount - 1] = parent;
+                    break;
+                default:
+                    break;
+            }
+            if (kind == PlatformSnapshot.POST || kind == PlatformSnapshot.COMMENT || kind == PlatformSnapshot.ENDORSEMENT) {
+                postOffsets[id] = offset;
+                postAuthors[id] = author;
+            }
+        }
+        for (int i = 0; i < endorsementCount; i++) {
+            accountEndorsementsReceived[postAuthors[endorsementTargets[i]]]++;
+        }
+        //the leaders follow the rankings of the platform: most endorsements, then the lower ID
+        for (int id = 1; id < postEndorsementCounts.length; id++) {
+            if (postEndorsementCounts[id] > postEndorsementCounts[mostEndorsedPost]) {
+                mostEndorsedPost = id;
+            }
+        }
+        for (int id = 1; id < accountEndorsementsReceived.length; id++) {
+            if (accountOffsets[id] >= 0 && accountEndorsementsReceived[id] > accountEndorsementsReceived[mostEndorsedAccount]) {
+                mostEndorsedAccount = id;
+            }
+        }
+        return true;
+    }
+
+    private static int[] filled(int length) {
+        int[] array = new int[length];
+        Arrays.fill(array, -1);
+        return array;
+    }
+
+    /**
+     * Grows the arrays indexed by account ID when a record holds an ID above the one in the header
+     */
+    private int checkAccountId(int id) throws IOException {
+        if (id < 0) {
+            throw new IOException("Snapshot contains a malformed account ID");
+        }
+        if (id >= accountOffsets.length) {
+            int length = Math.max(id + 1, accountOffsets.length << 1);
+            int old = accountOffsets.length;
+            accountOffsets = Arrays.copyOf(accountOffsets, length);
+            Arrays.fill(accountOffsets, old, length, -1);
+            accountPostCounts = Arrays.copyOf(accountPostCounts, length);
+            accountEndorsementCounts = Arrays.copyOf(accountEndorsementCounts, length);
+            accountEndorsementsReceived = Arrays.copyOf(accountEndorsementsReceived, length);
+        }
+        return id;
+    }
+
+    /**
+     * Grows the arrays indexed by post ID when a record holds an ID above the one in the header
+     */
+    private int checkPostId(int id) throws IOException {
+        if (id < 0) {
+            throw new IOException("Snapshot contains a malformed post ID");
+        }
+        if (id >= postOffsets.length) {
+            int length = Math.max(id + 1, postOffsets.length << 1);
+            int old = postOffsets.length;
+            postOffsets = Arrays.copyOf(postOffsets, length);
+            Arrays.fill(postOffsets, old, length, -1);
+            postAuthors = Arrays.copyOf(postAuthors, length);
+            postEndorsementCounts = Arrays.copyOf(postEndorsementCounts, length);
+            postCommentCounts = Arrays.copyOf(postCommentCounts, length);
+        }
+        return id;
+    }
+
+    /**
+     * Gets the last account ID the platform allocated before it was saved
+     * @return an integer that the next account ID follows on from
+     */
+    public int getLastAccountId() {
+        return lastAccountId;
+    }
+
+    /**
+     * Gets the last post ID the platform allocated before it was saved
+     * @return an integer that the next post ID follows on from
+     */
+    public int getLastPostId() {
+        return lastPostId;
+    }
+
+    /**
+     * Gets the sequence of the last journal record the platform held when it was saved
+     * @return a long sequence, or 0 if the platform was not journaled
+     */
+    public long getJournalSequence() {
+        return journalSequence;
+    }
+
+    /**
+     * Gets the number of accounts in the snapshot
+     * @return an integer of the no. accounts
+     */
+    public int getAccountCount() {
+        return accountCount;
+    }
+
+    /**
+     * Gets the number of original posts in the snapshot
+     * @return an integer of the no. original posts, not counting removed ones
+     */
+    public int getOriginalPostCount() {
+        return originalPostCount;
+    }
+
+    /**
+     * Gets the number of comments in the snapshot
+     * @return an integer of the no. comments, not counting removed ones
+     */
+    public int getCommentCount() {
+        return commentCount;
+    }
+
+    /**
+     * Gets the number of endorsements in the snapshot
+     * @return an integer of the no. endorsements
+     */
+    public int getEndorsementCount() {
+        return endorsementCount;
+    }
+
+    /**
+     * Gets the most endorsed post, as SocialMedia.getMostEndorsedPost() would after loading the snapshot
+     * @return the ID of the most endorsed post, or 0 if nothing is endorsed
+     */
+    public int getMostEndorsedPost() {
+        return mostEndorsedPost;
+    }
+
+    /**
+     * Gets the most endorsed account, as SocialMedia.getMostEndorsedAccount() would after loading the snapshot
+     * @return the ID of the account whose posts were endorsed most, or 0 if nothing is endorsed
+     */
+    public int getMostEndorsedAccount() {
+        return mostEndorsedAccount;
+    }
+
+    /**
+     * Formats an account in the same way as Account.toString()
+     * @param id the unique ID of the account
+     * @return the formatted account, or null if there is no account with the ID
+     */
+    public String showAccount(int id) {
+        if (id <= 0 || id >= accountOffsets.length || accountOffsets[id] < 0) {
+            return null;
+        }
+        int at = accountOffsets[id];
+        ByteBuffer view = buffer.duplicate();
+        view.position(at);
+        readVarInt(view); //tag
+        readVarInt(view); //id
+        String handle = readString(view);
+        String description = readVarInt(view) == 0 ? null : readString(view);
+        return "ID: " + id + "\nHandle: " + handle + "\nDescription: " + description + "\nPost count: "
+                + accountPostCounts[id] + "\nEndorse count: " + accountEndorsementCounts[id];
+    }
+
+    /**
+     * Formats an account in the same way as Account.toString()
+     * @param handle the handle of the account
+     * @return the formatted account, or null if there is no account with the handle
+     */
+    public String showAccount(String handle) {
+        Integer id = handles().get(handle);
+        return id == null ? null : showAccount(id);
+    }
+
+    /**
+     * Formats a post in the same way as Post.toString() on a freshly loaded platform
+     * @param id the sequential ID of the post
+     * @return the formatted post, or null if there is no post with the ID
+     */
+    public String showIndividualPost(int id) {
+        if (id <= 0 || id >= postOffsets.length || postOffsets[id] < 0) {
+            return null;
+        }
+        ByteBuffer view = buffer.duplicate();
+        view.position(postOffsets[id]);
+        byte kind = (byte) readVarInt(view);
+        readVarInt(view); //id
+        int author = readVarInt(view);
+        if (kind == PlatformSnapshot.ENDORSEMENT) {
+            int parent = readVarInt(view);
+            return "EP@" + handle(author) + ": " + message(parent);
+        }
+        if (kind == PlatformSnapshot.COMMENT) {
+            readVarInt(view); //parent
+        }
+        String message = readString(view);
+        return "ID: " + id + "\n\tAccount: " + handle(author) + "\n\tNo. endorsements: " + postEndorsementCounts[id]
+                + " | No. comments: " + postCommentCounts[id] + "\n\t" + message;
+    }
+
+    /**
+     * Gets a stream over the whole snapshot, for decoding it with a SnapshotReader
+     * @return an InputStream reading the mapped bytes from the start
+     */
+    public InputStream newInputStream() {
+        ByteBuffer view = buffer.duplicate();
+        view.position(0);
+        return new InputStream() {
+            @Override
+            public int read() {
+                return view.hasRemaining() ? view.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) {
+                if (!view.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(length, view.remaining());
+                view.get(bytes, offset, count);
+                return count;
+            }
+        };
+    }
+
+    /**
+     * Decodes every record, which is how a platform loaded from the mapping materialises
+     * @return the records of the snapshot, not yet linked
+     * @throws IOException if the records are malformed
+     */
+    public PlatformSnapshot read() throws IOException {
+        return new SnapshotReader(newInputStream()).read();
+    }
+
+    /**
+     * Writes the mapped bytes to another file, which saves the platform without materialising it. The bytes go to
+     * a temporary file that is moved over the target once it is whole, as a single snapshot is written
+     * @param filename location of the file to be written
+     * @param force true if the file has to be forced to the disk before returning
+     * @throws IOException if the file cannot be written
+     */
+    public void copyTo(String filename, boolean force) throws IOException {
+        Path target = Path.of(filename);
+        if (Files.exists(target) && Files.isSameFile(path, target)) {
+            return; //already holds these bytes
+        }
+        ByteBuffer view = buffer.duplicate();
+        view.position(0);
+        Path temporary = Path.of(filename + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temporary.toFile())) {
+            byte[] chunk = new byte[1 << 16];
+            while (view.hasRemaining()) {
+                int count = Math.min(chunk.length, view.remaining());
+                view.get(chunk, 0, count);
+                out.write(chunk, 0, count);
+            }
+            if (force) {
+                out.getFD().sync();
+            }
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Builds the index from handle to account ID the first time it is needed, by decoding only the handles
+     */
+    private synchronized HashMap<String, Integer> handles() {
+        if (handles == null) {
+            HashMap<String, Integer> byHandle = new HashMap<>(accountCount * 2);
+            ByteBuffer view = buffer.duplicate();
+            for (int id = 1; id < accountOffsets.length; id++) {
+                if (accountOffsets[id] >= 0) {
+                    view.position(accountOffsets[id]);
+                    readVarInt(view);
+                    readVarInt(view);
+                    byHandle.put(readString(view), id);
+                }
+            }
+            handles = byHandle;
+        }
+        return handles;
+    }
+
+    private String handle(int accountId) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(accountOffsets[accountId]);
+        readVarInt(view);
+        readVarInt(view);
+        return readString(view);
+    }
+
+    private String message(int postId) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(postOffsets[postId]);
+        byte kind = (byte) readVarInt(view);
+        readVarInt(view);
+        readVarInt(view);
+        if (kind == PlatformSnapshot.COMMENT) {
+            readVarInt(view);
+        }
+        return readString(view);
+    }
+
+    private int position; //the position of the indexing pass
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (position >= buffer.limit()) {
+                throw new IOException("Snapshot ended before its end tag");
+            }
+            byte b = buffer.get(position++);
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Snapshot contains a malformed integer");
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= buffer.limit()) {
+                throw new IOException("Snapshot ended before its end tag");
+            }
+            byte b = buffer.get(position++);
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Snapshot contains a malformed integer");
+    }
+
+    private void skipString() throws IOException {
+        int length = readVarInt();
+        if (length < 0 || length > buffer.limit() - position) {
+            throw new IOException("Snapshot contains a malformed String length");
+        }
+        position += length;
+    }
+
+    private static int readVarInt(ByteBuffer view) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = view.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer view) {
+        byte[] bytes = new byte[readVarInt(view)];
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
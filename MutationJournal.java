@@ -0,0 +1,504 @@
+package socialmedia;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ *
+ * The MutationJournal class is an append only log of the changes made to a platform. Each change is one compact
+ * record holding its sequence number, the kind of change and its arguments, framed by its length and a CRC32 so a
+ * record torn by a crash is recognised and dropped. Records are buffered and written with a single fsync once a
+ * group of them has built up or the sync interval has passed, so the cost of forcing the file is shared by the group.
+ * A record that no later record follows is written by a background flusher once the interval has passed
+ *
+ * @author Pierre Siddall and Priya Shah
+ * @version 1.0
+ */
+
+public class MutationJournal implements Closeable {
+    public static final byte CREATE_ACCOUNT = 1; //the kinds of record
+    public static final byte CHANGE_HANDLE = 2;
+    public static final byte UPDATE_DESCRIPTION = 3;
+    public static final byte CREATE_POST = 4;
+    public static final byte ENDORSE_POST = 5;
+    public static final byte COMMENT_POST = 6;
+    public static final byte DELETE_POST = 7;
+    public static final byte REMOVE_ACCOUNT = 8;
+    public static final byte ERASE_PLATFORM = 9;
+    public static final byte IMPORT_REMOVED_POST = 10; //an imported generic empty post, which records refer to by its reference ID
+    public static final byte HIDE_ACCOUNT = 11; //an account removed by removeAccountAsync, whose posts are still there
+    public static final byte REMOVE_HIDDEN_ACCOUNT = 12; //the posts of a hidden account being removed
+
+    public static final byte[] MAGIC = {'S', 'M', 'P', 'J'};
+    public static final int VERSION = 1;
+    private static final int HEADER_LENGTH = MAGIC.length + 1 + Long.BYTES;
+    private static final int MAX_RECORD_LENGTH = 1 << 26; //larger lengths can only come from a torn record
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "socialmedia-journal-flusher");
+        thread.setDaemon(true);
+        return thread;
+    }); //syncs the groups no later append completes
+
+    private final FileChannel channel;
+    private final int groupSize;
+    private final long syncIntervalNanos;
+    private long baseSequence; //the sequence the journal starts after
+    private long lastSequence;
+    private byte[] buffer = new byte[1 << 12];
+    private int position = 0;
+    private int pendingRecords = 0;
+    private long lastSync = System.nanoTime();
+    private boolean flushScheduled = false;
+    private IOException flushFailure = null; //a background sync that failed, reported by the next append
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * A record read back from the journal
+     */
+    public static class Record {
+        private final byte kind;
+        private final long sequence;
+        private final int id;
+        private final int target;
+        private final String handle;
+        private final String text;
+
+        private Record(byte kind, long sequence, int id, int target, String handle, String text) {
+            this.kind = kind;
+            this.sequence = sequence;
+            this.id = id;
+            this.target = target;
+            this.handle = handle;
+            this.text = text;
+        }
+
+        /**
+         * Gets the kind of change
+         * @return one of the record kinds of MutationJournal
+         */
+        public byte getKind() {
+            return kind;
+        }
+
+        /**
+         * Gets the sequence number of the record
+         * @return a long one greater than the record before it
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Gets the ID the change created, or the account removed
+         * @return an integer ID, or 0 when the change has none
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Gets the post the change refers to
+         * @return the ID of the post endorsed, commented on or deleted, or 0 when the change has none
+         */
+        public int getTarget() {
+            return target;
+        }
+
+        /**
+         * Gets the handle of the account that made the change
+         * @return a String handle, or null when the change has none
+         */
+        public String getHandle() {
+            return handle;
+        }
+
+        /**
+         * Gets the message, description or new handle of the change
+         * @return a String, or null when the change has none
+         */
+        public String getText() {
+            return text;
+        }
+    }
+
+    /**
+     * Handles the records of a journal as they are replayed
+     */
+    public interface Replayer {
+        void apply(Record record) throws Exception;
+    }
+
+    /**
+     * Constructor for a journal that fsyncs every 64 records or every 50 milliseconds, whichever comes first
+     * @param filename location of the journal, which is created if it does not exist
+     * @throws IOException if the file cannot be opened or is not a journal
+     */
+    public MutationJournal(String filename) throws IOException {
+        this(filename, 64, 50);
+    }
+
+    /**
+     * Constructor for a journal. An existing journal is appended to after its last whole record
+     * @param filename location of the journal, which is created if it does not exist
+     * @param groupSize the number of records that are written with one fsync, 1 to fsync every record
+     * @param syncIntervalMillis the longest a record is kept buffered before it is forced to the disk
+     * @throws IOException if the file cannot be opened or is not a journal
+     */
+    public MutationJournal(String filename, int groupSize, long syncIntervalMillis) throws IOException {
+        this.groupSize = Math.max(1, groupSize);
+        this.syncIntervalNanos = syncIntervalMillis * 1_000_000L;
+        channel = FileChannel.open(Path.of(filename), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                writeHeader(0);
+            } else {
+                long end = scan(0, null); //finds the last whole record
+                channel.truncate(end); //drops a record torn by a crash
+                channel.position(end);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the sequence number of the last record appended
+     * @return a long, which is the sequence the journal was truncated at if it holds no records
+     */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Gets the sequence the journal starts after, records up to it are held in a snapshot
+     * @return a long of the sequence the journal was last truncated at
+     */
+    public synchronized long getBaseSequence() {
+        return baseSequence;
+    }
+
+    /**
+     * Appends a record, which is durable once the group it belongs to has been written
+     * @param kind one of the record kinds
+     * @param id the ID the change created or the account removed, or 0
+     * @param target the ID of the post the change refers to, or 0
+     * @param handle the handle of the account that made the change, or null
+     * @param text the message, description or new handle of the change, or null
+     * @return the sequence number of the record
+     * @throws IOException if a group could not be written
+     */
+    public synchronized long append(byte kind, int id, int target, String handle, String text) throws IOException {
+        if (flushFailure != null) {
+            throw new IOException("Journal could not be synced in the background", flushFailure);
+        }
+        long sequence = lastSequence + 1;
+        ensure(6);
+        int start = position;
+        position += 5; //room for the length, which is written once the payload is known
+        buffer[position++] = kind;
+        writeVarLong(sequence);
+        writeVarLong(id);
+        writeVarLong(target);
+        writeString(handle);
+        writeString(text);
+        int length = position - start - 5;
+        crc.reset();
+        crc.update(buffer, start + 5, length);
+        ensure(Integer.BYTES);
+        writeInt((int) crc.getValue());
+        int lengthBytes = varIntLength(length); //moves the payload up against its length
+        System.arraycopy(buffer, start + 5, buffer, start + lengthBytes, length + Integer.BYTES);
+        position -= 5 - lengthBytes;
+        int at = start;
+        int value = length;
+        while ((value & ~0x7F) != 0) {
+            buffer[at++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[at] = (byte) value;
+        lastSequence = sequence;
+        pendingRecords++;
+        if (pendingRecords >= groupSize || System.nanoTime() - lastSync >= syncIntervalNanos) {
+            sync();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            FLUSHER.schedule(this::flush, syncIntervalNanos - (System.nanoTime() - lastSync), TimeUnit.NANOSECONDS);
+        }
+        return sequence;
+    }
+
+    /**
+     * Syncs the buffered records once the sync interval has passed, run by the flusher so the last records of a
+     * burst are not left buffered until something else is appended
+     */
+    private synchronized void flush() {
+        flushScheduled = false;
+        if (pendingRecords == 0 || !channel.isOpen()) {
+            return; //synced since, or closed
+        }
+        long waited = System.nanoTime() - lastSync;
+        if (waited < syncIntervalNanos) { //synced since and appended to again, so due later
+            flushScheduled = true;
+            FLUSHER.schedule(this::flush, syncIntervalNanos - waited, TimeUnit.NANOSECONDS);
+            return;
+        }
+        try {
+            sync();
+        } catch (IOException e) {
+            flushFailure = e;
+        }
+    }
+
+    /**
+     * Writes the buffered records and forces them to the disk
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void sync() throws IOException {
+        if (position > 0) {
+            ByteBuffer pending = ByteBuffer.wrap(buffer, 0, position);
+            while (pending.hasRemaining()) {
+                channel.write(pending);
+            }
+            position = 0;
+            channel.force(false);
+        }
+        pendingRecords = 0;
+        lastSync = System.nanoTime();
+    }
+
+    /**
+     * Empties the journal once its records are held in a snapshot. Numbering carries on from the sequence given.
+     * Nothing is dropped if records after the sequence have been appended, as happens when the snapshot was
+     * written in the background, those records are replayed on top of it instead
+     * @param sequence the sequence of the last record the snapshot holds
+     * @return true if the journal was emptied, and false if it holds records after the sequence
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized boolean truncate(long sequence) throws IOException {
+        if (lastSequence > sequence) {
+            return false;
+        }
+        position = 0;
+        pendingRecords = 0;
+        channel.truncate(0);
+        writeHeader(sequence);
+        return true;
+    }
+
+    /**
+     * Reads every whole record after a sequence, in order
+     * @param afterSequence the sequence of the last record already applied
+     * @param replayer receives each record
+     * @return the sequence of the last record replayed, or afterSequence if there were none
+     * @throws IOException if the journal does not reach back to afterSequence, or the replayer fails
+     */
+    public synchronized long replay(long afterSequence, Replayer replayer) throws IOException {
+        sync();
+        if (afterSequence < baseSequence) {
+            throw new IOException("Journal starts after sequence " + baseSequence + ", so the records after "
+                    + afterSequence + " are lost");
+        }
+        long[] last = {afterSequence};
+        scan(afterSequence, record -> {
+            replayer.apply(record);
+            last[0] = record.getSequence();
+        });
+        return last[0];
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeHeader(long sequence) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.put(MAGIC).put((byte) VERSION).putLong(sequence).flip();
+        channel.write(header, 0);
+        channel.position(HEADER_LENGTH);
+        channel.force(false);
+        baseSequence = sequence;
+        lastSequence = sequence;
+    }
+
+    /**
+     * Reads the journal from the start, checking every record, and sets the last sequence
+     * @param afterSequence records up to this sequence are skipped
+     * @param replayer receives the records after afterSequence, or null to only check them
+     * @return the position after the last whole record
+     */
+    private long scan(long afterSequence, Replayer replayer) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        readFully(header, 0);
+        for (byte b : MAGIC) {
+            if (header.get() != b) {
+                throw new IOException("Not a mutation journal");
+            }
+        }
+        int version = header.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported journal version " + version);
+        }
+        baseSequence = header.getLong();
+        lastSequence = baseSequence;
+        long at = HEADER_LENGTH;
+        long size = channel.size();
+        ByteBuffer lengthBytes = ByteBuffer.allocate(5);
+        while (at < size) {
+            lengthBytes.clear();
+            lengthBytes.limit((int) Math.min(5, size - at));
+            channel.read(lengthBytes, at);
+            lengthBytes.flip();
+            int length = 0;
+            int read = 0;
+            boolean complete = false;
+            while (lengthBytes.hasRemaining()) {
+                byte b = lengthBytes.get();
+                length |= (b & 0x7F) << (7 * read++);
+                if (b >= 0) {
+                    complete = true;
+                    break;
+                }
+            }
+            if (!complete || length <= 0 || length > MAX_RECORD_LENGTH || at + read + length + Integer.BYTES > size) {
+                break; //a torn record, everything before it is kept
+            }
+            ByteBuffer record = ByteBuffer.allocate(length + Integer.BYTES);
+            readFully(record, at + read);
+            crc.reset();
+            crc.update(record.array(), 0, length);
+            if ((int) crc.getValue() != record.getInt(length)) {
+                break;
+            }
+            Record decoded = decode(record.array(), length);
+            if (decoded.getSequence() != lastSequence + 1) {
+                throw new IOException("Journal record " + decoded.getSequence() + " follows " + lastSequence);
+            }
+            lastSequence = decoded.getSequence();
+            if (replayer != null && lastSequence > afterSequence) {
+                try {
+                    replayer.apply(decoded);
+                } catch (IOException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IOException("Journal record " + lastSequence + " could not be replayed: " + e.getMessage(), e);
+                }
+            }
+            at += read + length + Integer.BYTES;
+        }
+        return at;
+    }
+
+    private void readFully(ByteBuffer target, long at) throws IOException {
+        while (target.hasRemaining()) {
+            int read = channel.read(target, at);
+            if (read < 0) {
+                throw new EOFException("Journal ended inside a record");
+            }
+            at += read;
+        }
+        target.flip();
+    }
+
+    private Record decode(byte[] bytes, int length) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(bytes, 0, length);
+        byte kind = in.get();
+        long sequence = readVarLong(in);
+        int id = (int) readVarLong(in);
+        int target = (int) readVarLong(in);
+        String handle = readString(in);
+        String text = readString(in);
+        return new Record(kind, sequence, id, target, handle, text);
+    }
+
+    private static long readVarLong(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Journal contains a malformed integer");
+    }
+
+    /**
+     * Reads a String written with its length plus one, so that 0 stands for null
+     */
+    private static String readString(ByteBuffer in) throws IOException {
+        int length = (int) readVarLong(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new IOException("Journal contains a malformed String length");
+        }
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private void writeString(String value) {
+        if (value == null) {
+            writeVarLong(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length + 1L);
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void writeVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeInt(int value) {
+        buffer[position++] = (byte) (value >>> 24);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    private static int varIntLength(int value) {
+        int bytes = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+
+    /**
+     * Grows the buffer, records are only written out by sync so a group stays together
+     */
+    private void ensure(int bytes) {
+        if (position + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + bytes));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package socialmedia;
+
+import java.util.ArrayList;
+
+/**
+ *
+ * The PlatformChanges class collects the accounts and posts that have changed since a platform was last saved,
+ * so an incremental save only writes those. Each Account and Post is marked dirty the first time it changes,
+ * which keeps it from being collected twice. Removed accounts and deleted posts are collected as well, an
+ * incremental save writes them as tombstones. It is synchronized, since ConcurrentSocialMedia lets accounts
+ * change side by side
+ *
+ * @author Pierre Siddall and Priya Shah
+ * @version 1.0
+ */
+
+public class PlatformChanges {
+    private final ArrayList<Account> accounts = new ArrayList<>();
+    private final ArrayList<Post> posts = new ArrayList<>();
+    private boolean full = false; //set when the changes cannot be written as a delta
+
+    /**
+     * Collects an account that was created, changed or removed
+     * @param account the Account that changed
+     */
+    public synchronized void markAccount(Account account) {
+        if (account.markDirty()) {
+            accounts.add(account);
+        }
+    }
+
+    /**
+     * Collects a post, comment or endorsement that was created, replaced by the generic empty post or deleted
+     * @param post the Post that changed
+     */
+    public synchronized void markPost(Post post) {
+        if (post.markDirty()) {
+            posts.add(post);
+        }
+    }
+
+    /**
+     * Records that the whole platform has to be saved, as happens once it is erased
+     */
+    public synchronized void requireFull() {
+        full = true;
+    }
+
+    /**
+     * Checks whether the whole platform has to be saved
+     * @return true if the changes cannot be written as a delta, and false if they can
+     */
+    public synchronized boolean isFull() {
+        return full;
+    }
+
+    /**
+     * Checks whether anything has changed
+     * @return true if nothing has changed since the last save, and false if something has
+     */
+    public synchronized boolean isEmpty() {
+        return !full && accounts.isEmpty() && posts.isEmpty();
+    }
+
+    /**
+     * Gets the accounts that changed, in the order they first changed
+     * @return an ArrayList of the changed accounts, including removed ones
+     */
+    public synchronized ArrayList<Account> getAccounts() {
+        return accounts;
+    }
+
+    /**
+     * Gets the posts that changed, in the order they first changed
+     * @return an ArrayList of the changed posts, including deleted ones
+     */
+    public synchronized ArrayList<Post> getPosts() {
+        return posts;
+    }
+
+    /**
+     * Forgets every change once the platform has been saved
+     */
+    public synchronized void clear() {
+        for (Account account : accounts) {
+            account.clearDirty();
+        }
+        for (Post post : posts) {
+            post.clearDirty();
+        }
+        accounts.clear();
+        posts.clear();
+        full = false;
+    }
+}
@@ -0,0 +1,682 @@
+package socialmedia;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ *
+ * The PlatformSnapshot class holds the contents of a platform as flat records, one per account and one per post,
+ * with accounts and posts referring to each other by ID instead of by reference. It is what a SnapshotReader
+ * decodes a file into, and toAccounts() links the records back into Account and Post objects. A snapshot read from
+ * a delta segment also holds the IDs of the accounts and posts deleted since the segment before, and is merged
+ * into the snapshot it follows with applyDelta()
+ *
+ * @author Pierre Siddall and Priya Shah
+ * @version 1.0
+ */
+
+public class PlatformSnapshot {
+    public static final byte POST = 1; //the kinds of post record
+    public static final byte COMMENT = 2;
+    public static final byte ENDORSEMENT = 3;
+    public static final byte REMOVED_POST = 4; //an original post replaced by the generic empty post
+    public static final byte REMOVED_COMMENT = 5; //a comment replaced by the generic empty post
+
+    private int lastAccountId = 0;
+    private int lastPostId = 0;
+    private long journalSequence = 0;
+
+    private int accountCount = 0;
+    private int[] accountIds = new int[16];
+    private String[] handles = new String[16];
+    private String[] descriptions = new String[16];
+
+    private int postCount = 0;
+    private byte[] kinds = new byte[16];
+    private int[] postIds = new int[16];
+    private int[] authors = new int[16]; //the account ID of the author, endorser or commenter
+    private int[] parents = new int[16]; //the post a comment replies to or an endorsement endorses, otherwise 0
+    private String[] messages = new String[16]; //null for endorsements and removed posts
+
+    private int deletedAccountCount = 0; //tombstones of a delta segment
+    private int[] deletedAccounts = new int[0];
+    private int deletedPostCount = 0;
+    private int[] deletedPosts = new int[0];
+    private IntHashMap<Integer> accountSlots = null; //record index by ID, built once deltas are applied
+    private IntHashMap<Integer> postSlots = null;
+    private int segmentCount = 0;
+    private long length = 0;
+
+    /**
+     * Copies the accounts and posts of a platform into flat records. The records only hold IDs, numbers and
+     * Strings, which cannot change, so once captured they can be written on another thread while the
+     * platform carries on changing. Posts replaced by the generic empty post that no account holds any more
+     * are captured after the rest, so the replies to them can be linked
+     * @param accounts the accounts of the platform
+     * @return the records of the platform
+     */
+    public static PlatformSnapshot capture(Collection<Account> accounts) {
+        PlatformSnapshot snapshot = new PlatformSnapshot();
+        IntHashMap<Account> captured = new IntHashMap<>(accounts.size());
+        for (Account account : accounts) {
+            snapshot.addAccount(account.getUniqueID(), account.getHandle(), account.getDescription());
+            captured.put(account.getUniqueID(), account);
+        }
+        IntHashMap<Post> removed = new IntHashMap<>();
+        ArrayList<Post> pending = new ArrayList<>();
+        for (Account account : accounts) {
+            for (Post post : account.getAllPosts()) {
+                snapshot.addPost(post);
+                queueRemovedNeighbours(post, captured, removed, pending);
+            }
+        }
+        while (!pending.isEmpty()) {
+            Post post = pending.remove(pending.size() - 1);
+            snapshot.addPost(post);
+            queueRemovedNeighbours(post, captured, removed, pending);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Queues the post a comment replies to and the replies of a post when they were replaced by the generic
+     * empty post and are not held by any account being captured, which happens once their author is removed
+     */
+    private static void queueRemovedNeighbours(Post post, IntHashMap<Account> captured, IntHashMap<Post> removed,
+            ArrayList<Post> pending) {
+        if (post instanceof Endorsement) {
+            return;
+        }
+        if (post instanceof Comment) {
+            queueRemoved(((Comment) post).getPost(), captured, removed, pending);
+        }
+        for (Comment comment : post.getComments()) {
+            queueRemoved(comment, captured, removed, pending);
+        }
+    }
+
+    private static void queueRemoved(Post post, IntHashMap<Account> captured, IntHashMap<Post> removed,
+            ArrayList<Post> pending) {
+        if (post.getSequentialID() != 0 || removed.containsKey(post.getReferenceID())) {
+            return;
+        }
+        Account author = post.getAccount();
+        if (post instanceof Comment && author != null && captured.get(author.getUniqueID()) == author) {
+            return; //captured with the rest of its author's posts
+        }
+        removed.put(post.getReferenceID(), post);
+        pending.add(post);
+    }
+
+    /**
+     * Gets the kind of record a post is saved as
+     * @param post the Post
+     * @return one of POST, COMMENT, ENDORSEMENT, REMOVED_POST or REMOVED_COMMENT
+     */
+    public static byte kindOf(Post post) {
+        if (post instanceof Endorsement) {
+            return ENDORSEMENT;
+        }
+        if (post instanceof Comment) {
+            return post.getSequentialID() == 0 ? REMOVED_COMMENT : COMMENT;
+        }
+        return post.getSequentialID() == 0 ? REMOVED_POST : POST;
+    }
+
+    /**
+     * Gets the last account ID the platform allocated
+     * @return an integer that the next account ID follows on from
+     */
+    public int getLastAccountId() {
+        return lastAccountId;
+    }
+
+    /**
+     * Gets the last post ID the platform allocated
+     * @return an integer that the next post ID follows on from
+     */
+    public int getLastPostId() {
+        return lastPostId;
+    }
+
+    /**
+     * Sets the last IDs the platform allocated
+     * @param lastAccountId an integer that the next account ID follows on from
+     * @param lastPostId an integer that the next post ID follows on from
+     */
+    public void setLastIds(int lastAccountId, int lastPostId) {
+        this.lastAccountId = lastAccountId;
+        this.lastPostId = lastPostId;
+    }
+
+    /**
+     * Gets the sequence of the last journal record the platform held when it was saved
+     * @return a long sequence, or 0 if the platform was not journaled
+     */
+    public long getJournalSequence() {
+        return journalSequence;
+    }
+
+    /**
+     * Sets the sequence of the last journal record the platform held when it was saved
+     * @param journalSequence a long sequence, or 0 if the platform was not journaled
+     */
+    public void setJournalSequence(long journalSequence) {
+        this.journalSequence = journalSequence;
+    }
+
+    /**
+     * Adds an account record
+     * @param id the unique ID of the account
+     * @param handle the handle of the account
+     * @param description the description of the account, which may be null
+     */
+    public void addAccount(int id, String handle, String description) {
+        if (accountCount == accountIds.length) {
+            int capacity = accountCount << 1;
+            accountIds = Arrays.copyOf(accountIds, capacity);
+            handles = Arrays.copyOf(handles, capacity);
+            descriptions = Arrays.copyOf(descriptions, capacity);
+        }
+        accountIds[accountCount] = id;
+        handles[accountCount] = handle;
+        descriptions[accountCount] = description;
+        accountCount++;
+    }
+
+    /**
+     * Adds a post record
+     * @param kind one of POST, COMMENT, ENDORSEMENT, REMOVED_POST or REMOVED_COMMENT
+     * @param id the reference ID of the post
+     * @param author the unique ID of the account that made the post
+     * @param parent the reference ID of the post that is replied to or endorsed, or 0
+     * @param message the message of the post, or null when it is not stored
+     */
+    public void addPost(byte kind, int id, int author, int parent, String message) {
+        if (postCount == postIds.length) {
+            int capacity = postCount << 1;
+            kinds = Arrays.copyOf(kinds, capacity);
+            postIds = Arrays.copyOf(postIds, capacity);
+            authors = Arrays.copyOf(authors, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            messages = Arrays.copyOf(messages, capacity);
+        }
+        kinds[postCount] = kind;
+        postIds[postCount] = id;
+        authors[postCount] = author;
+        parents[postCount] = parent;
+        messages[postCount] = message;
+        postCount++;
+    }
+
+    /**
+     * Adds the record of a post, comment, endorsement or post replaced by the generic empty post
+     * @param post the Post to add
+     */
+    public void addPost(Post post) {
+        byte kind = kindOf(post);
+        int author = post.getAccount() == null ? 0 : post.getAccount().getUniqueID();
+        int parent = 0;
+        if (post instanceof Comment) {
+            parent = ((Comment) post).getPost().getReferenceID();
+        } else if (post instanceof Endorsement) {
+            parent = ((Endorsement) post).getPost().getReferenceID();
+        }
+        addPost(kind, post.getReferenceID(), author, parent, kind == POST || kind == COMMENT ? post.getMessage() : null);
+    }
+
+    /**
+     * Adds the tombstone of an account removed since the segment before
+     * @param id the unique ID the account had
+     */
+    public void deleteAccount(int id) {
+        if (deletedAccountCount == deletedAccounts.length) {
+            deletedAccounts = Arrays.copyOf(deletedAccounts, Math.max(16, deletedAccountCount << 1));
+        }
+        deletedAccounts[deletedAccountCount++] = id;
+    }
+
+    /**
+     * Adds the tombstone of a post deleted since the segment before
+     * @param id the reference ID the post had
+     */
+    public void deletePost(int id) {
+        if (deletedPostCount == deletedPosts.length) {
+            deletedPosts = Arrays.copyOf(deletedPosts, Math.max(16, deletedPostCount << 1));
+        }
+        deletedPosts[deletedPostCount++] = id;
+    }
+
+    /**
+     * Merges a delta segment into this snapshot. Its records replace the ones with the same ID or are added,
+     * and its tombstones remove records. pack() has to be called once the last delta is applied
+     * @param delta the records and tombstones of a delta segment
+     */
+    public void applyDelta(PlatformSnapshot delta) {
+        if (accountSlots == null) {
+            accountSlots = new IntHashMap<>(accountCount);
+            for (int i = 0; i < accountCount; i++) {
+                accountSlots.put(accountIds[i], i);
+            }
+            postSlots = new IntHashMap<>(postCount);
+            for (int i = 0; i < postCount; i++) {
+                postSlots.put(postIds[i], i);
+            }
+        }
+        for (int i = 0; i < delta.accountCount; i++) {
+            Integer slot = accountSlots.get(delta.accountIds[i]);
+            if (slot == null) {
+                accountSlots.put(delta.accountIds[i], accountCount);
+                addAccount(delta.accountIds[i], delta.handles[i], delta.descriptions[i]);
+            } else {
+                handles[slot] = delta.handles[i];
+                descriptions[slot] = delta.descriptions[i];
+            }
+        }
+        for (int i = 0; i < delta.postCount; i++) {
+            Integer slot = postSlots.get(delta.postIds[i]);
+            if (slot == null) {
+                postSlots.put(delta.postIds[i], postCount);
+                addPost(delta.kinds[i], delta.postIds[i], delta.authors[i], delta.parents[i], delta.messages[i]);
+            } else {
+                kinds[slot] = delta.kinds[i];
+                authors[slot] = delta.authors[i];
+                parents[slot] = delta.parents[i];
+                messages[slot] = delta.messages[i];
+            }
+        }
+        for (int i = 0; i < delta.deletedAccountCount; i++) {
+            Integer slot = accountSlots.remove(delta.deletedAccounts[i]);
+            if (slot != null) {
+                handles[slot] = null; //packed away later
+            }
+        }
+        for (int i = 0; i < delta.deletedPostCount; i++) {
+            Integer slot = postSlots.remove(delta.deletedPosts[i]);
+            if (slot != null) {
+                kinds[slot] = 0;
+            }
+        }
+        setLastIds(delta.lastAccountId, delta.lastPostId);
+        journalSequence = delta.journalSequence;
+    }
+
+    /**
+     * Removes the records deleted by the deltas applied so far
+     */
+    public void pack() {
+        if (accountSlots == null) {
+            return;
+        }
+        int kept = 0;
+        for (int i = 0; i < accountCount; i++) {
+            if (handles[i] != null) {
+                accountIds[kept] = accountIds[i];
+                handles[kept] = handles[i];
+                descriptions[kept] = descriptions[i];
+                kept++;
+            }
+        }
+        Arrays.fill(handles, kept, accountCount, null);
+        Arrays.fill(descriptions, kept, accountCount, null);
+        accountCount = kept;
+        kept = 0;
+        for (int i = 0; i < postCount; i++) {
+            if (kinds[i] != 0) {
+                kinds[kept] = kinds[i];
+                postIds[kept] = postIds[i];
+                authors[kept] = authors[i];
+                parents[kept] = parents[i];
+                messages[kept] = messages[i];
+                kept++;
+            }
+        }
+        Arrays.fill(messages, kept, postCount, null);
+        postCount = kept;
+        accountSlots = null;
+        postSlots = null;
+    }
+
+    /**
+     * Gets the number of delta segments that followed the snapshot in its file
+     * @return an integer of the no. delta segments merged into the snapshot
+     */
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * Gets the number of bytes of the file that held the snapshot and its whole delta segments
+     * @return a long length, which is less than the file when a segment was torn by a save that did not finish
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Sets how the snapshot was laid out in its file
+     * @param segmentCount the number of delta segments merged into the snapshot
+     * @param length the number of bytes of the snapshot and its whole delta segments
+     */
+    public void setLayout(int segmentCount, long length) {
+        this.segmentCount = segmentCount;
+        this.length = length;
+    }
+
+    /**
+     * Gets the unique ID of an account record
+     * @param i the index of the record
+     * @return the unique ID of the account
+     */
+    public int getAccountId(int i) {
+        return accountIds[i];
+    }
+
+    /**
+     * Gets the handle of an account record
+     * @param i the index of the record
+     * @return the handle of the account
+     */
+    public String getHandle(int i) {
+        return handles[i];
+    }
+
+    /**
+     * Gets the description of an account record
+     * @param i the index of the record
+     * @return the description of the account, which may be null
+     */
+    public String getDescription(int i) {
+        return descriptions[i];
+    }
+
+    /**
+     * Gets the kind of a post record
+     * @param i the index of the record
+     * @return one of POST, COMMENT, ENDORSEMENT, REMOVED_POST or REMOVED_COMMENT
+     */
+    public byte getKind(int i) {
+        return kinds[i];
+    }
+
+    /**
+     * Gets the reference ID of a post record
+     * @param i the index of the record
+     * @return the reference ID of the post
+     */
+    public int getPostId(int i) {
+        return postIds[i];
+    }
+
+    /**
+     * Gets the author of a post record
+     * @param i the index of the record
+     * @return the unique ID of the account that made the post
+     */
+    public int getAuthor(int i) {
+        return authors[i];
+    }
+
+    /**
+     * Gets the post a post record refers to
+     * @param i the index of the record
+     * @return the reference ID of the post replied to or endorsed, or 0
+     */
+    public int getParent(int i) {
+        return parents[i];
+    }
+
+    /**
+     * Gets the message of a post record
+     * @param i the index of the record
+     * @return the message, or null when it is not stored
+     */
+    public String getMessage(int i) {
+        return messages[i];
+    }
+
+    /**
+     * Splits the records by account, for saving them as shards. An account and every post it made go to shard
+     * shardOf(account ID), so comments and endorsements may refer to posts in other shards by their ID
+     * @param shards the number of shards
+     * @return the records of each shard, each with the sequences and journal sequence of this snapshot
+     */
+    public PlatformSnapshot[] partition(int shards) {
+        PlatformSnapshot[] parts = new PlatformSnapshot[shards];
+        for (int k = 0; k < shards; k++) {
+            parts[k] = new PlatformSnapshot();
+            parts[k].setLastIds(lastAccountId, lastPostId);
+            parts[k].setJournalSequence(journalSequence);
+        }
+        for (int i = 0; i < accountCount; i++) {
+            parts[shardOf(accountIds[i], shards)].addAccount(accountIds[i], handles[i], descriptions[i]);
+        }
+        for (int i = 0; i < postCount; i++) {
+            parts[shardOf(authors[i], shards)].addPost(kinds[i], postIds[i], authors[i], parents[i], messages[i]);
+        }
+        return parts;
+    }
+
+    /**
+     * Gets the shard an account and its posts are saved in
+     * @param accountId the unique ID of the account
+     * @param shards the number of shards
+     * @return an integer from 0 to shards - 1
+     */
+    public static int shardOf(int accountId, int shards) {
+        return Math.floorMod(accountId, shards);
+    }
+
+    /**
+     * Joins the records of several shards back into one snapshot. The references between shards are
+     * resolved by toAccounts() once the records are together
+     * @param parts the records of each shard
+     * @return a snapshot holding every record, with the sequences and journal sequence of the first part
+     */
+    public static PlatformSnapshot merge(PlatformSnapshot[] parts) {
+        int accounts = 0;
+        int posts = 0;
+        for (PlatformSnapshot part : parts) {
+            accounts += part.accountCount;
+            posts += part.postCount;
+        }
+        PlatformSnapshot merged = new PlatformSnapshot();
+        merged.accountIds = new int[Math.max(16, accounts)];
+        merged.handles = new String[merged.accountIds.length];
+        merged.descriptions = new String[merged.accountIds.length];
+        merged.kinds = new byte[Math.max(16, posts)];
+        merged.postIds = new int[merged.kinds.length];
+        merged.authors = new int[merged.kinds.length];
+        merged.parents = new int[merged.kinds.length];
+        merged.messages = new String[merged.kinds.length];
+        for (PlatformSnapshot part : parts) {
+            System.arraycopy(part.accountIds, 0, merged.accountIds, merged.accountCount, part.accountCount);
+            System.arraycopy(part.handles, 0, merged.handles, merged.accountCount, part.accountCount);
+            System.arraycopy(part.descriptions, 0, merged.descriptions, merged.accountCount, part.accountCount);
+            merged.accountCount += part.accountCount;
+            System.arraycopy(part.kinds, 0, merged.kinds, merged.postCount, part.postCount);
+            System.arraycopy(part.postIds, 0, merged.postIds, merged.postCount, part.postCount);
+            System.arraycopy(part.authors, 0, merged.authors, merged.postCount, part.postCount);
+            System.arraycopy(part.parents, 0, merged.parents, merged.postCount, part.postCount);
+            System.arraycopy(part.messages, 0, merged.messages, merged.postCount, part.postCount);
+            merged.postCount += part.postCount;
+        }
+        merged.sortAccounts(); //back in the order the accounts were created
+        if (parts.length > 0) {
+            merged.setLastIds(parts[0].lastAccountId, parts[0].lastPostId);
+            merged.setJournalSequence(parts[0].journalSequence);
+        }
+        return merged;
+    }
+
+    private void sortAccounts() {
+        long[] order = new long[accountCount]; //the ID in the high half and the record index in the low half
+        for (int i = 0; i < accountCount; i++) {
+            order[i] = ((long) accountIds[i] << 32) | i;
+        }
+        Arrays.sort(order);
+        int[] sortedIds = new int[accountIds.length];
+        String[] sortedHandles = new String[accountIds.length];
+        String[] sortedDescriptions = new String[accountIds.length];
+        for (int i = 0; i < accountCount; i++) {
+            int from = (int) order[i];
+            sortedIds[i] = accountIds[from];
+            sortedHandles[i] = handles[from];
+            sortedDescriptions[i] = descriptions[from];
+        }
+        accountIds = sortedIds;
+        handles = sortedHandles;
+        descriptions = sortedDescriptions;
+    }
+
+    /**
+     * Gets the number of account records
+     * @return an integer of the no. accounts in the snapshot
+     */
+    public int getAccountCount() {
+        return accountCount;
+    }
+
+    /**
+     * Gets the number of post records
+     * @return an integer of the no. posts, comments, endorsements and removed posts in the snapshot
+     */
+    public int getPostCount() {
+        return postCount;
+    }
+
+    /**
+     * Links the records back into accounts and posts. Posts are linked in ID order, so every reply and
+     * endorsement is added after the post it refers to and each post's comments stay sorted by ID
+     * @return the ArrayList of the accounts in the snapshot, with their posts attached
+     * @throws IOException if a record refers to an account or post that is not in the snapshot,
+     *                     or holds a handle or message the platform would not accept
+     */
+    public ArrayList<Account> toAccounts() throws IOException {
+        ArrayList<Account> accounts = new ArrayList<>(accountCount);
+        IntHashMap<Account> accountsById = new IntHashMap<>(accountCount);
+        try {
+            for (int i = 0; i < accountCount; i++) {
+                Account account = new Account(handles[i], descriptions[i]);
+                account.setUniqueId(accountIds[i]);
+                accounts.add(account);
+                accountsById.put(accountIds[i], account);
+            }
+            IntHashMap<Post> posts = new IntHashMap<>(postCount);
+            for (int i : postOrder()) {
+                Post post = link(i, accountsById, posts);
+                posts.put(postIds[i], post);
+            }
+        } catch (InvalidHandleException | InvalidPostException e) {
+            throw new IOException("Snapshot contains an invalid record: " + e.getMessage(), e);
+        }
+        return accounts;
+    }
+
+    /**
+     * Gets the post records in the order of their IDs, which is the order they were made in, so every post
+     * comes before the comments and endorsements that refer to it
+     * @return the indexes of the post records
+     */
+    public int[] postOrder() {
+        long[] order = new long[postCount]; //the ID in the high half and the record index in the low half
+        for (int i = 0; i < postCount; i++) {
+            order[i] = ((long) postIds[i] << 32) | i;
+        }
+        Arrays.sort(order);
+        int[] indexes = new int[postCount];
+        for (int i = 0; i < postCount; i++) {
+            indexes[i] = (int) order[i];
+        }
+        return indexes;
+    }
+
+    /**
+     * Builds the post of one record and attaches it to its author and to the post it refers to
+     * @param i the index of the record
+     * @param accountsById the accounts of the snapshot by unique ID
+     * @param posts the posts linked so far by reference ID
+     * @return the linked post
+     */
+    private Post link(int i, IntHashMap<Account> accountsById, IntHashMap<Post> posts)
+            throws IOException, InvalidHandleException, InvalidPostException {
+        Account author = accountsById.get(authors[i]);
+        switch (kinds[i]) {
+            case POST: {
+                Post post = new Post(messages[i]);
+                post.setSequentialID(postIds[i]);
+                liveAuthor(author, i).addUserPost(post, author);
+                return post;
+            }
+            case COMMENT: {
+                Post parent = parent(posts, i);
+                Comment comment = new Comment(liveAuthor(author, i), messages[i], parent);
+                comment.setSequentialID(postIds[i]);
+                parent.addToComments(comment);
+                author.addToAllPostsComment(comment);
+                return comment;
+            }
+            case ENDORSEMENT: {
+                Post parent = parent(posts, i);
+                Endorsement endorsement = new Endorsement(parent, liveAuthor(author, i));
+                endorsement.setSequentialID(postIds[i]);
+                parent.addToEndorsements(endorsement);
+                author.addToAllPostsEndorsement(endorsement);
+                return endorsement;
+            }
+            case REMOVED_POST: {
+                Post post = new Post();
+                post.setSequentialID(postIds[i]); //records the reference ID before resetting it as the platform does
+                post.setSequentialID(0);
+                post.setAccount(author == null ? removedAuthor(accountsById, authors[i]) : author);
+                return post;
+            }
+            case REMOVED_COMMENT: {
+                Post parent = parent(posts, i);
+                if (author == null) {
+                    author = removedAuthor(accountsById, authors[i]);
+                }
+                Comment comment = new Comment(author, Post.REMOVED_MESSAGE, parent);
+                comment.setSequentialID(postIds[i]);
+                comment.setSequentialID(0);
+                parent.addToComments(comment);
+                author.addToAllPostsComment(comment);
+                return comment;
+            }
+            default:
+                throw new IOException("Snapshot contains an unknown kind of post: " + kinds[i]);
+        }
+    }
+
+    private Account liveAuthor(Account author, int i) throws IOException {
+        if (author == null) {
+            throw new IOException("Post " + postIds[i] + " refers to a missing account " + authors[i]);
+        }
+        return author;
+    }
+
+    private Post parent(IntHashMap<Post> posts, int i) throws IOException {
+        Post parent = posts.get(parents[i]);
+        if (parent == null) {
+            throw new IOException("Post " + postIds[i] + " refers to a missing post " + parents[i]);
+        }
+        return parent;
+    }
+
+    /**
+     * Gets a stand in for a removed account that still authors a comment replaced by the generic empty post.
+     * It is not added to the platform, it only renders as a deleted account
+     * @param accountsById the accounts of the snapshot by unique ID, which keeps the stand ins as well
+     * @param id the unique ID the removed account had
+     * @return a redundant Account
+     */
+    private Account removedAuthor(IntHashMap<Account> accountsById, int id) throws InvalidHandleException {
+        Account removed = new Account("removed");
+        removed.setUniqueId(id);
+        removed.makeAccountRedundant();
+        accountsById.put(id, removed);
+        return removed;
+    }
+}
@@ -1,7 +1,11 @@
 package socialmedia;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 
 /**
  *
@@ -14,26 +18,31 @@ import java.util.ArrayList;
  * */
 
 public class Post implements Serializable {
+    public static final String REMOVED_MESSAGE = "The original content was removed from the system and is no longer available.";
     protected Account account=null;
     private String message;
-    protected static int SEQID=0;
     protected int sequentialID;
+    private int referenceID; //the last non-zero sequential ID, kept when the post is replaced by the generic empty post
     protected ArrayList<Comment> comments=new ArrayList<>();
-    protected ArrayList<Endorsement> endorsements = new ArrayList<>();
+    protected LinkedHashSet<Endorsement> endorsements = new LinkedHashSet<>(); //a set so an endorsement can be removed in constant time
     private int counter=0;
+    private transient boolean dirty = false; //changed since the platform was last saved
+    private transient int threadComments = 0; //the following are kept by the platform and counted again on loading
+    private transient int threadDepth = 0;
+    private transient int threadEndorsements = 0;
 
 
     /**
      * A constructor for the post class which defines a generic post (a post which has been deleted)
      */
     public Post(){
-        this.message="The original content was removed from the system and is no longer available.";
+        this.message=REMOVED_MESSAGE;
         this.sequentialID=0;
     }
 
     /**
      * A constructor for the post class that defines a new post with a message defined by the user. The sequential id of the post
-     * is updated appropriately to make it unique
+     * is allocated afterwards by the platform it is added to
      * @param message - A string that contains the message of the post
      * @throws InvalidPostException
      */
@@ -46,19 +55,9 @@ public class Post implements Serializable {
         }
         else{
             this.message = message;
-            this.sequentialID = ++SEQID;
         }
     }
 
-    /**
-     * Sets the sequential id of the post
-     * @param SEQID a static integer
-     *
-     */
-    public static void setSEQID(int SEQID) {
-        Post.SEQID = SEQID;
-    }
-
 
     /**
      * This gets the message of the post
@@ -85,14 +84,225 @@ public class Post implements Serializable {
         return sequentialID;
     }
 
+    /**
+     * Gets the tab number the post was indented by when it was last written with its thread, which toString()
+     * indents its lines by
+     * @return An integer of the tab number
+     */
+    public int getCounter() {
+        return counter;
+    }
+
     /**
      * This sets the sequential ID of a post
      * @param sequentialID an integer containing the sequential ID of the post
      */
     public void setSequentialID(int sequentialID){
+        if (sequentialID != 0){
+            this.referenceID = sequentialID;
+        }
         this.sequentialID = sequentialID;
     }
 
+    /**
+     * Gets the ID used to refer to this post in snapshots. Unlike the sequential ID it is not reset to 0
+     * when the post is replaced by the generic empty post, so replies can still point at it
+     * @return An integer that contains the last sequential ID the post had
+     */
+    public int getReferenceID() {
+        return referenceID;
+    }
+
+    /**
+     * Marks the post as changed since the platform was last saved
+     * @return true if it was not already marked, and false if it was
+     */
+    public boolean markDirty() {
+        if (dirty) {
+            return false;
+        }
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * Checks whether the post has changed since the platform was last saved
+     * @return true if the post is marked as changed, and false if not
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Clears the mark once the post has been saved
+     */
+    public void clearDirty() {
+        dirty = false;
+    }
+
+    /**
+     * Gets the number of comments below the post at any depth, including those replaced by the generic empty post
+     * @return An integer of the no. comments in the thread below the post
+     */
+    public int getThreadComments() {
+        return threadComments;
+    }
+
+    /**
+     * Gets how deep the thread below the post goes
+     * @return 0 if the post has no comments, 1 if none of its comments has comments, and so on
+     */
+    public int getThreadDepth() {
+        return threadDepth;
+    }
+
+    /**
+     * Gets the number of endorsements of the post and of every comment below it
+     * @return An integer of the no. endorsements in the thread of the post
+     */
+    public int getThreadEndorsements() {
+        return threadEndorsements;
+    }
+
+    /**
+     * Gets the post a comment replies to
+     * @return the Post above this one in its thread, or null if this is not a comment
+     */
+    private Post above() {
+        return this instanceof Comment ? ((Comment) this).getPost() : null;
+    }
+
+    /**
+     * Gets the post at the top of the thread, whose monitor guards the comments, endorsements and counts of
+     * every post in the thread when they are changed or read from more than one account's lock
+     * @return the original post the thread hangs from, or this post if it is not a comment
+     */
+    Post threadRoot() {
+        Post root = this;
+        for (Post post = above(); post != null; post = post.above()) {
+            root = post;
+        }
+        return root;
+    }
+
+    /**
+     * Counts this comment and the thread below it in every post above it, once it has been added to the
+     * comments of the post it replies to
+     */
+    void addedToThread() {
+        int added = threadComments + 1;
+        int reach = threadDepth + 1; //how deep the added thread goes below each post above it
+        for (Post post = above(); post != null; post = post.above(), reach++) {
+            post.threadComments += added;
+            post.threadEndorsements += threadEndorsements;
+            if (post.threadDepth < reach) {
+                post.threadDepth = reach;
+            }
+        }
+    }
+
+    /**
+     * Discounts this comment and the thread below it from every post above it, once it has been removed from the
+     * comments of the post it replies to. The depth of a post is only worked out again from its remaining comments
+     * when the removed thread may have been its deepest
+     */
+    void removedFromThread() {
+        int removed = threadComments + 1;
+        int reach = threadDepth + 1;
+        boolean depthSettled = false; //once a post keeps its depth, the posts above it keep theirs
+        for (Post post = above(); post != null; post = post.above(), reach++) {
+            post.threadComments -= removed;
+            post.threadEndorsements -= threadEndorsements;
+            if (!depthSettled && post.threadDepth == reach) {
+                int depth = 0;
+                for (Comment comment : post.comments) {
+                    depth = Math.max(depth, comment.getThreadDepth() + 1);
+                }
+                depthSettled = depth == post.threadDepth;
+                post.threadDepth = depth;
+            } else {
+                depthSettled = true;
+            }
+        }
+    }
+
+    /**
+     * Discounts this comment and the thread below it from the comment and endorsement totals of every post above
+     * it, leaving their depths to settleThreadDepth once the comments it was removed from are compacted
+     */
+    void discountFromThread() {
+        for (Post post = above(); post != null; post = post.above()) {
+            post.threadComments -= threadComments + 1;
+            post.threadEndorsements -= threadEndorsements;
+        }
+    }
+
+    /**
+     * Works out the depth of this post again from its remaining comments, and of each post above it for as long
+     * as the depth keeps changing
+     */
+    void settleThreadDepth() {
+        for (Post post = this; post != null; post = post.above()) {
+            int depth = 0;
+            for (Comment comment : post.comments) {
+                depth = Math.max(depth, comment.getThreadDepth() + 1);
+            }
+            if (depth == post.threadDepth) {
+                return;
+            }
+            post.threadDepth = depth;
+        }
+    }
+
+    /**
+     * Counts endorsements added to or removed from this post in its thread and in every post above it
+     * @param delta the number of endorsements added, or negative for those removed
+     */
+    void endorsementsChanged(int delta) {
+        for (Post post = this; post != null; post = post.above()) {
+            post.threadEndorsements += delta;
+        }
+    }
+
+    /**
+     * Counts the thread below this post again from nothing, as after loading, walking it with an explicit stack
+     * so a deep thread cannot overflow the call stack
+     */
+    void recountThread() {
+        Post[] path = new Post[16];
+        int[] next = new int[16];
+        int depth = 0;
+        path[0] = this;
+        resetThread(this);
+        while (depth >= 0) {
+            Post post = path[depth];
+            if (next[depth] < post.comments.size()) {
+                Comment comment = post.comments.get(next[depth]++);
+                resetThread(comment);
+                if (++depth == path.length) {
+                    path = Arrays.copyOf(path, depth * 2);
+                    next = Arrays.copyOf(next, depth * 2);
+                }
+                path[depth] = comment;
+                next[depth] = 0;
+                continue;
+            }
+            path[depth--] = null; //every comment below it is counted, so it is added to the post above
+            if (depth >= 0) {
+                Post parent = path[depth];
+                parent.threadComments += post.threadComments + 1;
+                parent.threadEndorsements += post.threadEndorsements;
+                parent.threadDepth = Math.max(parent.threadDepth, post.threadDepth + 1);
+            }
+        }
+    }
+
+    private static void resetThread(Post post) {
+        post.threadComments = 0;
+        post.threadDepth = 0;
+        post.threadEndorsements = post.endorsements.size();
+    }
+
     /**
      * Gets the account object associated with a post
      * @return The account associated with a post
@@ -127,15 +337,15 @@ public class Post implements Serializable {
     }
 
     /**
-     * Gets the Endorsement ArrayList associated with a post
-     * @return The ArrayList of endorsements
+     * Gets the Endorsement set associated with a post
+     * @return The insertion ordered set of endorsements
      */
-    public ArrayList<Endorsement> getEndorsements() {
+    public LinkedHashSet<Endorsement> getEndorsements() {
         return endorsements;
     }
 
     @Deprecated
-    public void setEndorsements(ArrayList<Endorsement> endorsements) {
+    public void setEndorsements(LinkedHashSet<Endorsement> endorsements) {
         this.endorsements = endorsements;
     }
 
@@ -148,8 +358,8 @@ public class Post implements Serializable {
     }
 
     /**
-     * Adds a endorsement to the endorsements ArrayList
-     * @param endorsement - An Endorsement object to be added to ArrayList
+     * Adds a endorsement to the endorsements set
+     * @param endorsement - An Endorsement object to be added to the set
      */
     public void addToEndorsements(Endorsement endorsement){
         endorsements.add(endorsement);
@@ -171,30 +381,93 @@ public class Post implements Serializable {
      * @return A string containing the appropriate amount of whitespace
      */
     public String whiteSpaceGen(int count){
-        String whitespace="";
-        for (int i=0; i<=count;i++){
-            whitespace=whitespace+"\t"; //Adds whitespace to the whitespace string
-        }
-        return whitespace;
+        return Rendering.indent(count); //shared, rather than built a tab at a time
     }
 
     /**
-     * Recursive method to create a StringBuilder of the children comments
+     * Creates a StringBuilder of the children comments, as writeChildrenComments writes them
      * @param count an integer that keeps track of the tab number
      * @return The StringBuilder of the children comments
      */
     public StringBuilder getChildrenComments(int count){
-        counter = count;
-        count++;
         StringBuilder sb = new StringBuilder();
-        sb.append("\t\t"+this + "\n"); //appends the toString() of this instance of Post
-        for (Comment comment : getComments()) {
-            sb.append(whiteSpaceGen(counter)+"|\n"+whiteSpaceGen(counter)+"| >");//generates the tabs of children
-            sb.append(comment.getChildrenComments(count));// Recursive call to the children of a post adding the toString() to the StringBuilder
+        try {
+            writeChildrenComments(count, sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); //a StringBuilder does not throw
         }
         return sb;
     }
 
+    /**
+     * Writes this post and the comments below it, each followed by its own comments, walking the tree with
+     * an explicit stack so the depth of a thread does not grow the call stack. Every post written records its
+     * tab number, which its toString() indents by
+     * @param count an integer that keeps track of the tab number of this post
+     * @param out the Appendable the text is written to
+     * @throws IOException if the Appendable cannot be written to
+     */
+    public void writeChildrenComments(int count, Appendable out) throws IOException {
+        Post[] path = new Post[16]; //the posts from this one down to the one being written
+        int[] next = new int[16]; //the index of the next comment to write below each of them
+        int depth = 0;
+        path[0] = this;
+        writeEntry(this, count, out);
+        while (depth >= 0) {
+            Post post = path[depth];
+            if (next[depth] == post.comments.size()) {
+                path[depth--] = null; //every comment below it is written
+                continue;
+            }
+            Comment comment = post.comments.get(next[depth]++);
+            int tabs = count + depth;
+            Rendering.appendIndent(out, tabs);
+            out.append("|\n");
+            Rendering.appendIndent(out, tabs);
+            out.append("| >");
+            if (++depth == path.length) {
+                path = Arrays.copyOf(path, depth * 2);
+                next = Arrays.copyOf(next, depth * 2);
+            }
+            path[depth] = comment;
+            next[depth] = 0;
+            writeEntry(comment, tabs + 1, out);
+        }
+    }
+
+    private static void writeEntry(Post post, int count, Appendable out) throws IOException {
+        post.counter = count;
+        out.append("\t\t");
+        post.writeDetails(out);
+        out.append('\n');
+    }
+
+    /**
+     * Writes what toString() returns
+     * @param out the Appendable the text is written to
+     * @throws IOException if the Appendable cannot be written to
+     */
+    public void writeDetails(Appendable out) throws IOException {
+        if (out instanceof StringBuilder) {
+            appendDetails((StringBuilder) out);
+            return;
+        }
+        StringBuilder buffer = Rendering.buffer(); //formatted first, so a Writer gets one call
+        appendDetails(buffer);
+        out.append(buffer);
+    }
+
+    private void appendDetails(StringBuilder out) {
+        out.append("ID: ").append(getSequentialID()).append('\n');
+        Rendering.appendIndent(out, counter);
+        out.append("Account: ").append(account.getHandle()).append('\n');
+        Rendering.appendIndent(out, counter);
+        out.append("No. endorsements: ").append(endorsements.size()).append(" | No. comments: ").append(comments.size())
+                .append('\n');
+        Rendering.appendIndent(out, counter);
+        out.append(getMessage());
+    }
+
     @Deprecated
     public void makePostRedundant(){
         this.account=null;
@@ -204,11 +477,8 @@ public class Post implements Serializable {
 
     @Override
     public String toString(){
-        String ws=whiteSpaceGen(counter); //Appropriate whitespace calculated
-        StringBuilder tab = new StringBuilder();
-        tab.append("ID: " + getSequentialID() + "\n"+ws+"Account: "+account.getHandle()+"\n"+ws+"No. endorsements: " + endorsements.size()+ " | No. comments: " + comments.size() + "\n"+ws+getMessage());
+        StringBuilder tab = Rendering.buffer(); //indented by the tab number recorded when the post was last written with its thread
+        appendDetails(tab);
         return tab.toString();
-
     }
 }
-
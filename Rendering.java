@@ -0,0 +1,76 @@
+package socialmedia;
+
+import java.io.IOException;
+
+/**
+ *
+ * The Rendering class holds what the toString() methods of posts, comments and accounts share so they allocate
+ * little more than the String they return: a StringBuilder kept per thread and reused for every rendering, and
+ * the tab indentation, which is appended from one constant String instead of being built tab by tab
+ *
+ * @author Pierre Siddall and Priya Shah
+ * @version 1.0
+ */
+
+public class Rendering {
+    private static final int MAX_KEPT_CAPACITY = 1 << 16; //a buffer grown past this is dropped rather than kept
+    private static final String TABS = "\t".repeat(256);
+    private static final String[] INDENTS = new String[64]; //whiteSpaceGen(count) for the smaller counts
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    static {
+        for (int count = 0; count < INDENTS.length; count++) {
+            INDENTS[count] = TABS.substring(0, count + 1);
+        }
+    }
+
+    /**
+     * Gets this thread's rendering buffer, emptied. The text must be taken out of it with toString() before
+     * anything else is rendered on the thread
+     * @return the StringBuilder of the calling thread
+     */
+    public static StringBuilder buffer() {
+        StringBuilder buffer = BUFFER.get();
+        if (buffer.capacity() > MAX_KEPT_CAPACITY) {
+            buffer = new StringBuilder(256);
+            BUFFER.set(buffer);
+        }
+        buffer.setLength(0);
+        return buffer;
+    }
+
+    /**
+     * Gets the whitespace Post.whiteSpaceGen generates for a tab number, which is one tab more than the number
+     * @param count the tab number
+     * @return a String of count + 1 tabs
+     */
+    public static String indent(int count) {
+        if (count < 0) {
+            return "";
+        }
+        return count < INDENTS.length ? INDENTS[count] : "\t".repeat(count + 1);
+    }
+
+    /**
+     * Appends the whitespace Post.whiteSpaceGen generates for a tab number
+     * @param out the StringBuilder the tabs are appended to
+     * @param count the tab number
+     */
+    public static void appendIndent(StringBuilder out, int count) {
+        for (int remaining = count + 1; remaining > 0; remaining -= TABS.length()) {
+            out.append(TABS, 0, Math.min(remaining, TABS.length()));
+        }
+    }
+
+    /**
+     * Writes the whitespace Post.whiteSpaceGen generates for a tab number
+     * @param out the Appendable the tabs are written to
+     * @param count the tab number
+     * @throws IOException if the Appendable cannot be written to
+     */
+    public static void appendIndent(Appendable out, int count) throws IOException {
+        for (int remaining = count + 1; remaining > 0; remaining -= TABS.length()) {
+            out.append(TABS, 0, Math.min(remaining, TABS.length()));
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package socialmedia;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ *
+ * The ShardedSnapshot class saves a platform as several shard files written and read in parallel, along with a
+ * manifest naming them. Each shard is an ordinary binary snapshot holding some of the accounts and every post
+ * they made, split by PlatformSnapshot.shardOf. Comments and endorsements keep pointing at the post they refer to
+ * by its reference ID, so references that cross shards are linked once the shards are merged after loading
+ *
+ * @author Pierre Siddall and Priya Shah
+ * @version 1.0
+ */
+
+public class ShardedSnapshot {
+    public static final byte[] MAGIC = {'S', 'M', 'P', 'M'};
+    public static final int VERSION = 2; //version 2 added the generation and each shard's length and checksum
+
+    /**
+     * Checks whether a stream starts with a shard manifest, leaving the stream where it was
+     * @param in a stream that supports mark and reset
+     * @return true if the stream starts with the manifest magic bytes and false if not
+     * @throws IOException if the stream cannot be read
+     */
+    public static boolean isManifest(InputStream in) throws IOException {
+        in.mark(MAGIC.length);
+        try {
+            for (byte b : MAGIC) {
+                if (in.read() != (b & 0xFF)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * Gets the name of a shard file, which sits beside its manifest. The name holds the generation of the save
+     * that wrote it, so a save never overwrites the shards the manifest in place still names
+     * @param manifest location of the manifest
+     * @param generation the generation of the save, one more than that of the manifest it replaces
+     * @param shard the index of the shard
+     * @return the location of the shard file
+     */
+    public static String shardName(String manifest, long generation, int shard) {
+        return manifest + ".g" + generation + ".shard" + shard;
+    }
+
+    /**
+     * Writes the records as shard files encoded in parallel, then the manifest. The shards are written under
+     * names of a new generation and the manifest is only moved into place once every shard is whole, so a save
+     * that fails leaves the previous manifest and its shards as they were. The manifest records the length and
+     * checksum of each shard, and the shards of the previous generation are deleted once it is replaced
+     * @param manifest location of the manifest
+     * @param snapshot the records to write
+     * @param shards the number of shard files
+     * @param force true if the files have to be forced to the disk before returning
+     * @param pool the pool the shards are encoded on
+     * @throws IOException if a file cannot be written
+     */
+    public static void write(String manifest, PlatformSnapshot snapshot, int shards, boolean force, ForkJoinPool pool)
+            throws IOException {
+        Manifest previous = readPrevious(manifest);
+        long generation = previous == null ? 1 : previous.generation + 1;
+        PlatformSnapshot[] parts = snapshot.partition(shards);
+        long[] lengths = new long[shards];
+        long[] checksums = new long[shards];
+        ArrayList<Future<?>> tasks = new ArrayList<>();
+        for (int k = 0; k < shards; k++) {
+            int shard = k;
+            String name = shardName(manifest, generation, k);
+            tasks.add(pool.submit(() -> {
+                CRC32C checksum = new CRC32C();
+                lengths[shard] = writeShard(name, parts[shard], checksum, force);
+                checksums[shard] = checksum.getValue();
+                return null;
+            }));
+        }
+        try {
+            await(tasks);
+        } catch (IOException e) {
+            for (int k = 0; k < shards; k++) {
+                try {
+                    Files.deleteIfExists(Path.of(shardName(manifest, generation, k))); //never named by a manifest
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+
+        Path target = Path.of(manifest);
+        Path temporary = Path.of(manifest + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(shards);
+            out.writeInt(snapshot.getLastAccountId());
+            out.writeInt(snapshot.getLastPostId());
+            out.writeLong(snapshot.getJournalSequence());
+            out.writeLong(generation);
+            for (int k = 0; k < shards; k++) {
+                out.writeUTF(Path.of(shardName(manifest, generation, k)).getFileName().toString()); //relative, so the files can be moved together
+                out.writeInt(parts[k].getAccountCount());
+                out.writeInt(parts[k].getPostCount());
+                out.writeLong(lengths[k]);
+                out.writeInt((int) checksums[k]);
+            }
+            out.flush();
+            if (force) {
+                file.getFD().sync();
+            }
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (previous != null) {
+            Path directory = target.toAbsolutePath().getParent();
+            for (String name : previous.names) {
+                try {
+                    Files.deleteIfExists(directory.resolve(name)); //no longer named by the manifest
+                } catch (IOException e) {
+                    //left behind, the save itself has succeeded
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a manifest and decodes its shards in parallel, merging them into one snapshot
+     * @param manifest location of the manifest
+     * @param pool the pool the shards are decoded on
+     * @return the records of every shard, not yet linked
+     * @throws IOException if a file cannot be read, or a shard does not hold what the manifest says it does
+     */
+    public static PlatformSnapshot read(String manifest, ForkJoinPool pool) throws IOException {
+        Path directory = Path.of(manifest).toAbsolutePath().getParent();
+        Manifest listed;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(manifest)))) {
+            listed = Manifest.read(in);
+        }
+
+        PlatformSnapshot[] parts = new PlatformSnapshot[listed.names.length];
+        ArrayList<Future<?>> tasks = new ArrayList<>();
+        for (int k = 0; k < listed.names.length; k++) {
+            int shard = k;
+            Path file = directory.resolve(listed.names[k]);
+            tasks.add(pool.submit(() -> {
+                CRC32C checksum = new CRC32C();
+                try (CheckedInputStream in = new CheckedInputStream(new FileInputStream(file.toFile()), checksum)) {
+                    PlatformSnapshot part = new SnapshotReader(in).read();
+                    if (part.getAccountCount() != listed.accountCounts[shard] || part.getPostCount() != listed.postCounts[shard]) {
+                        throw new IOException("Shard " + file.getFileName() + " does not match its manifest");
+                    }
+                    if (listed.lengths != null) {
+                        in.skip(Long.MAX_VALUE); //the checksum covers the whole file
+                        if (Files.size(file) != listed.lengths[shard] || (int) checksum.getValue() != listed.checksums[shard]) {
+                            throw new IOException("Shard " + file.getFileName() + " does not match its manifest's checksum");
+                        }
+                    }
+                    parts[shard] = part;
+                }
+                return null;
+            }));
+        }
+        await(tasks);
+
+        PlatformSnapshot snapshot = PlatformSnapshot.merge(parts);
+        snapshot.setLastIds(listed.lastAccountId, listed.lastPostId);
+        snapshot.setJournalSequence(listed.journalSequence);
+        return snapshot;
+    }
+
+    /**
+     * Reads the manifest a save is about to replace, so its generation can be carried on and its shards deleted
+     * @return the manifest, or null if there is none or the file is not one
+     */
+    private static Manifest readPrevious(String manifest) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(manifest)))) {
+            return Manifest.read(in);
+        } catch (IOException e) {
+            return null; //nothing to carry on from, so the save starts at the first generation
+        }
+    }
+
+    /**
+     * The contents of a manifest: the shards it names and what each of them holds
+     */
+    private static class Manifest {
+        private int lastAccountId;
+        private int lastPostId;
+        private long journalSequence;
+        private long generation = 0; //0 for a version 1 manifest, whose shards were not tagged
+        private String[] names;
+        private int[] accountCounts;
+        private int[] postCounts;
+        private long[] lengths; //null for a version 1 manifest, which records no lengths or checksums
+        private int[] checksums;
+
+        private static Manifest read(DataInputStream in) throws IOException {
+            for (byte b : MAGIC) {
+                if (in.readByte() != b) {
+                    throw new IOException("Not a shard manifest");
+                }
+            }
+            int version = in.readUnsignedByte();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported shard manifest version " + version);
+            }
+            Manifest manifest = new Manifest();
+            int shards = in.readInt();
+            if (shards < 1) {
+                throw new IOException("Shard manifest lists " + shards + " shards");
+            }
+            manifest.lastAccountId = in.readInt();
+            manifest.lastPostId = in.readInt();
+            manifest.journalSequence = in.readLong();
+            if (version >= 2) {
+                manifest.generation = in.readLong();
+                manifest.lengths = new long[shards];
+                manifest.checksums = new int[shards];
+            }
+            manifest.names = new String[shards];
+            manifest.accountCounts = new int[shards];
+            manifest.postCounts = new int[shards];
+            for (int k = 0; k < shards; k++) {
+                manifest.names[k] = in.readUTF();
+                manifest.accountCounts[k] = in.readInt();
+                manifest.postCounts[k] = in.readInt();
+                if (version >= 2) {
+                    manifest.lengths[k] = in.readLong();
+                    manifest.checksums[k] = in.readInt();
+                }
+            }
+            return manifest;
+        }
+    }
+
+    /**
+     * Waits for every task, reporting the first that failed
+     */
+    private static void await(ArrayList<Future<?>> tasks) throws IOException {
+        IOException failure = null;
+        for (Future<?> task : tasks) {
+            try {
+                task.get(); //waits for all of them, so no shard is still being written once this returns
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (failure == null) {
+                    failure = new InterruptedIOException("Interrupted while waiting for the shards");
+                }
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = BlockSnapshot.failure(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Writes one shard, adding every byte of it to the checksum
+     * @return the length of the shard file
+     */
+    private static long writeShard(String filename, PlatformSnapshot part, CRC32C checksum, boolean force)
+            throws IOException {
+        try (FileOutputStream file = new FileOutputStream(filename);
+                CheckedOutputStream checked = new CheckedOutputStream(file, checksum);
+                SnapshotWriter writer = new SnapshotWriter(checked)) {
+            writer.writeHeader(part.getLastAccountId(), part.getLastPostId(), part.getJournalSequence());
+            writer.writeRecords(part);
+            writer.finish();
+            if (force) {
+                file.getFD().sync();
+            }
+            return file.getChannel().position();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package socialmedia;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *
+ * The SnapshotReader class decodes the binary snapshot format written by SnapshotWriter into a PlatformSnapshot.
+ * It reads the stream through its own buffer and keeps no object graph, references between records are
+ * only resolved once the whole snapshot has been read
+ *
+ * @author Pierre Siddall and Priya Shah
+ * @version 1.0
+ */
+
+public class SnapshotReader {
+    public static final int MAX_STRING_LENGTH = 1 << 24; //far longer than any handle, message or description
+    private final InputStream in;
+    private final byte[] buffer = new byte[1 << 16];
+    private int position = 0;
+    private int limit = 0;
+    private long consumed = 0; //bytes read from the stream so far
+
+    /**
+     * Constructor for a reader
+     * @param in the stream the snapshot is read from, positioned at the start of the header
+     */
+    public SnapshotReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Checks whether a stream starts with a snapshot header, leaving the stream where it was
+     * @param in a stream that supports mark and reset
+     * @return true if the stream starts with the snapshot magic bytes and false if not
+     * @throws IOException if the stream cannot be read
+     */
+    public static boolean isSnapshot(InputStream in) throws IOException {
+        byte[] magic = SnapshotWriter.MAGIC;
+        in.mark(magic.length);
+        try {
+            for (byte b : magic) {
+                if (in.read() != (b & 0xFF)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * Reads the whole snapshot, merging in the delta segments that follow it. A last segment that ends early
+     * was torn by a save that did not finish, and is left out
+     * @return the records of the snapshot, not yet linked
+     * @throws IOException if the stream cannot be read, does not hold a snapshot or ends before the end tag
+     */
+    public PlatformSnapshot read() throws IOException {
+        for (byte b : SnapshotWriter.MAGIC) {
+            if (readByte() != b) {
+                throw new IOException("Not a platform snapshot");
+            }
+        }
+        int version = readVarInt();
+        if (version < 1 || version > SnapshotWriter.VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        PlatformSnapshot snapshot = new PlatformSnapshot();
+        snapshot.setLastIds(readVarInt(), readVarInt());
+        if (version >= 2) {
+            snapshot.setJournalSequence(readVarLong());
+        }
+        readRecords(snapshot);
+        int segments = 0;
+        long length = offset();
+        while (!atEnd()) {
+            PlatformSnapshot delta = new PlatformSnapshot();
+            try {
+                for (byte b : SnapshotWriter.DELTA_MAGIC) {
+                    if (readByte() != b) {
+                        throw new IOException("Snapshot is followed by something other than a delta segment");
+                    }
+                }
+                delta.setLastIds(readVarInt(), readVarInt());
+                delta.setJournalSequence(readVarLong());
+                readRecords(delta);
+            } catch (EOFException e) {
+                break; //torn, the platform is as it was after the segment before
+            }
+            snapshot.applyDelta(delta);
+            segments++;
+            length = offset();
+        }
+        snapshot.pack();
+        snapshot.setLayout(segments, length);
+        return snapshot;
+    }
+
+    /**
+     * Reads records into a snapshot until the end tag
+     * @param snapshot the snapshot the records are added to
+     * @throws IOException if the stream cannot be read or holds an unknown tag
+     */
+    public void readRecords(PlatformSnapshot snapshot) throws IOException {
+        while (true) {
+            int tag = readVarInt();
+            switch (tag) {
+                case SnapshotWriter.TAG_END:
+                    return;
+                case SnapshotWriter.TAG_ACCOUNT: {
+                    int id = readVarInt();
+                    String handle = readString();
+                    String description = readVarInt() == 0 ? null : readString();
+                    snapshot.addAccount(id, handle, description);
+                    break;
+                }
+                case PlatformSnapshot.POST:
+                case PlatformSnapshot.COMMENT:
+                case PlatformSnapshot.ENDORSEMENT:
+                case PlatformSnapshot.REMOVED_POST:
+                case PlatformSnapshot.REMOVED_COMMENT: {
+                    byte kind = (byte) tag;
+                    int id = readVarInt();
+                    int author = readVarInt();
+                    int parent = kind == PlatformSnapshot.POST || kind == PlatformSnapshot.REMOVED_POST ? 0 : readVarInt();
+                    String message = kind == PlatformSnapshot.POST || kind == PlatformSnapshot.COMMENT ? readString() : null;
+                    snapshot.addPost(kind, id, author, parent, message);
+                    break;
+                }
+                case SnapshotWriter.TAG_DELETE_ACCOUNT:
+                    snapshot.deleteAccount(readVarInt());
+                    break;
+                case SnapshotWriter.TAG_DELETE_POST:
+                    snapshot.deletePost(readVarInt());
+                    break;
+                default:
+                    throw new IOException("Snapshot contains an unknown record tag " + tag);
+            }
+        }
+    }
+
+    private byte readByte() throws IOException {
+        if (position == limit) {
+            fill();
+        }
+        return buffer[position++];
+    }
+
+    private void fill() throws IOException {
+        if (!refill()) {
+            throw new EOFException("Snapshot ended before its end tag");
+        }
+    }
+
+    private boolean refill() throws IOException {
+        limit = in.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit <= 0) {
+            limit = 0;
+            return false;
+        }
+        consumed += limit;
+        return true;
+    }
+
+    /**
+     * Checks whether the stream has been read to its end
+     */
+    private boolean atEnd() throws IOException {
+        return position == limit && !refill();
+    }
+
+    /**
+     * Gets the offset in the stream of the next byte to be decoded
+     */
+    private long offset() {
+        return consumed - limit + position;
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Snapshot contains a malformed integer");
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Snapshot contains a malformed integer");
+    }
+
+    private String readString() throws IOException {
+        int length = readVarInt();
+        if (length < 0) {
+            throw new IOException("Snapshot contains a malformed String length");
+        }
+        if (length > MAX_STRING_LENGTH) {
+            throw new IOException("Snapshot contains a String of " + length + " bytes, more than the "
+                    + MAX_STRING_LENGTH + " allowed");
+        }
+        if (length <= limit - position) { //decodes straight from the buffer when the whole String is in it
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        int read = 0;
+        while (read < length) {
+            if (position == limit) {
+                fill();
+            }
+            int chunk = Math.min(length - read, limit - position);
+            System.arraycopy(buffer, position, bytes, read, chunk);
+            position += chunk;
+            read += chunk;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
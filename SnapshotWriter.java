@@ -0,0 +1,242 @@
+package socialmedia;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ *
+ * The SnapshotWriter class streams a platform into the binary snapshot format. A snapshot is a header
+ * followed by one tagged record per account and per post, ending with an end tag. IDs are written as
+ * variable length integers, Strings as their UTF-8 length followed by their bytes, and comments and
+ * endorsements point at the post they refer to by its reference ID, so no object graph is walked recursively.
+ * A snapshot may be followed by delta segments, each holding the records that changed since the one before
+ *
+ * @author Pierre Siddall and Priya Shah
+ * @version 1.0
+ */
+
+public class SnapshotWriter implements Closeable {
+    public static final byte[] MAGIC = {'S', 'M', 'P', 'S'};
+    public static final int VERSION = 2; //version 2 added the journal sequence to the header
+    public static final int TAG_END = 0; //post records are tagged with their kind from PlatformSnapshot
+    public static final int TAG_ACCOUNT = 8;
+    public static final int TAG_DELETE_ACCOUNT = 9; //tombstones, which only appear in delta segments
+    public static final int TAG_DELETE_POST = 10;
+    public static final byte[] DELTA_MAGIC = {'S', 'M', 'P', 'D'}; //starts each delta segment appended after a snapshot
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[1 << 16];
+    private int position = 0;
+
+    /**
+     * Constructor for a writer
+     * @param out the stream the snapshot is written to, which is closed with the writer
+     */
+    public SnapshotWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the header of the snapshot
+     * @param lastAccountId the last account ID the platform allocated
+     * @param lastPostId the last post ID the platform allocated
+     * @param journalSequence the sequence of the last journal record the platform holds, or 0
+     * @throws IOException if the stream cannot be written to
+     */
+    public void writeHeader(int lastAccountId, int lastPostId, long journalSequence) throws IOException {
+        ensure(MAGIC.length);
+        System.arraycopy(MAGIC, 0, buffer, position, MAGIC.length);
+        position += MAGIC.length;
+        writeVarInt(VERSION);
+        writeVarInt(lastAccountId);
+        writeVarInt(lastPostId);
+        writeVarLong(journalSequence);
+    }
+
+    /**
+     * Writes the header of a delta segment, which is appended after a snapshot or an earlier segment
+     * @param lastAccountId the last account ID the platform allocated
+     * @param lastPostId the last post ID the platform allocated
+     * @param journalSequence the sequence of the last journal record the platform holds, or 0
+     * @throws IOException if the stream cannot be written to
+     */
+    public void writeDeltaHeader(int lastAccountId, int lastPostId, long journalSequence) throws IOException {
+        ensure(DELTA_MAGIC.length);
+        System.arraycopy(DELTA_MAGIC, 0, buffer, position, DELTA_MAGIC.length);
+        position += DELTA_MAGIC.length;
+        writeVarInt(lastAccountId);
+        writeVarInt(lastPostId);
+        writeVarLong(journalSequence);
+    }
+
+    /**
+     * Writes every record of a decoded snapshot, accounts first
+     * @param snapshot the records to write
+     * @throws IOException if the stream cannot be written to
+     */
+    public void writeRecords(PlatformSnapshot snapshot) throws IOException {
+        for (int i = 0; i < snapshot.getAccountCount(); i++) {
+            writeAccount(snapshot.getAccountId(i), snapshot.getHandle(i), snapshot.getDescription(i));
+        }
+        for (int i = 0; i < snapshot.getPostCount(); i++) {
+            writePost(snapshot.getKind(i), snapshot.getPostId(i), snapshot.getAuthor(i), snapshot.getParent(i),
+                    snapshot.getMessage(i));
+        }
+    }
+
+    /**
+     * Writes every account followed by every post, comment and endorsement they made, along with the posts
+     * replaced by the generic empty post that replies still point at
+     * @param accounts the accounts of the platform
+     * @throws IOException if the stream cannot be written to
+     */
+    public void writeAccounts(Collection<Account> accounts) throws IOException {
+        writeRecords(PlatformSnapshot.capture(accounts));
+    }
+
+    /**
+     * Writes an account record
+     * @param id the unique ID of the account
+     * @param handle the handle of the account
+     * @param description the description of the account, which may be null
+     * @throws IOException if the stream cannot be written to
+     */
+    public void writeAccount(int id, String handle, String description) throws IOException {
+        writeVarInt(TAG_ACCOUNT);
+        writeVarInt(id);
+        writeString(handle);
+        if (description == null) {
+            writeVarInt(0);
+        } else {
+            writeVarInt(1);
+            writeString(description);
+        }
+    }
+
+    /**
+     * Writes the record of a post, comment, endorsement or post replaced by the generic empty post
+     * @param post the Post to write
+     * @throws IOException if the stream cannot be written to
+     */
+    public void writePost(Post post) throws IOException {
+        byte kind = PlatformSnapshot.kindOf(post);
+        int author = post.getAccount() == null ? 0 : post.getAccount().getUniqueID();
+        int parent = 0;
+        if (post instanceof Comment) {
+            parent = ((Comment) post).getPost().getReferenceID();
+        } else if (post instanceof Endorsement) {
+            parent = ((Endorsement) post).getPost().getReferenceID();
+        }
+        writePost(kind, post.getReferenceID(), author, parent, post.getMessage());
+    }
+
+    /**
+     * Writes a post record from its fields
+     * @param kind one of the kinds of post record in PlatformSnapshot
+     * @param id the reference ID of the post
+     * @param author the unique ID of the account that made the post
+     * @param parent the reference ID of the post replied to or endorsed, ignored for original posts
+     * @param message the message, ignored for endorsements and removed posts
+     * @throws IOException if the stream cannot be written to
+     */
+    public void writePost(byte kind, int id, int author, int parent, String message) throws IOException {
+        writeVarInt(kind);
+        writeVarInt(id);
+        writeVarInt(author);
+        if (kind == PlatformSnapshot.COMMENT || kind == PlatformSnapshot.ENDORSEMENT
+                || kind == PlatformSnapshot.REMOVED_COMMENT) {
+            writeVarInt(parent);
+        }
+        if (kind == PlatformSnapshot.POST || kind == PlatformSnapshot.COMMENT) {
+            writeString(message);
+        }
+    }
+
+    /**
+     * Writes a tombstone for an account that was removed
+     * @param id the unique ID the account had
+     * @throws IOException if the stream cannot be written to
+     */
+    public void writeDeletedAccount(int id) throws IOException {
+        writeVarInt(TAG_DELETE_ACCOUNT);
+        writeVarInt(id);
+    }
+
+    /**
+     * Writes a tombstone for a post that was deleted
+     * @param id the reference ID the post had
+     * @throws IOException if the stream cannot be written to
+     */
+    public void writeDeletedPost(int id) throws IOException {
+        writeVarInt(TAG_DELETE_POST);
+        writeVarInt(id);
+    }
+
+    /**
+     * Writes the end tag and flushes the snapshot, without closing the stream
+     * @throws IOException if the stream cannot be written to
+     */
+    public void finish() throws IOException {
+        writeVarInt(TAG_END);
+        flush();
+        out.flush();
+    }
+
+    /**
+     * Writes an unsigned variable length integer, seven bits per byte with the high bit set on all but the last byte
+     * @param value the integer to write, treated as unsigned
+     */
+    private void writeVarInt(int value) throws IOException {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > SnapshotReader.MAX_STRING_LENGTH) { //refused here rather than written unreadable
+            throw new IOException("A String of " + bytes.length + " bytes is too long for a snapshot");
+        }
+        writeVarInt(bytes.length);
+        if (bytes.length > buffer.length) {
+            flush();
+            out.write(bytes);
+            return;
+        }
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (position + bytes > buffer.length) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+}
@@ -1,7 +1,23 @@
 package socialmedia;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * SocialMedia is a functioning implementor of
@@ -13,117 +29,372 @@ import java.util.ArrayList;
 
 public class SocialMedia implements SocialMediaPlatform {
 	private ArrayList<Account> accounts = new ArrayList<>();
+	private final IdSequence accountIds = new IdSequence(); //IDs are owned by the platform and saved with it
+	private final IdSequence postIds = new IdSequence();
+	private HashMap<String, Account> handles = new HashMap<>(); //indexes accounts by their handle
+	private IntHashMap<Account> accountIndex = new IntHashMap<>(); //indexes accounts by their unique ID
+	private final boolean sharedIndex; //set when posts are indexed from several threads at once, see SocialMedia(boolean)
+	private IntHashMap<Post> postIndex; //indexes every live post by its sequential ID
+	private LongAdder totalOriginalPosts = new LongAdder(); //the following counters are kept in step with postIndex
+	private LongAdder totalEndorsementPosts = new LongAdder();
+	private LongAdder totalCommentPosts = new LongAdder();
+	private EndorsementRanking postRanking = new EndorsementRanking(); //posts ranked by the endorsements they received
+	private EndorsementRanking accountRanking = new EndorsementRanking(); //accounts ranked by the endorsements their posts received
+	private volatile MappedSnapshot mapped = null; //set while a mapped snapshot has not been materialised
+	private final ViewCache views = new ViewCache(DEFAULT_VIEW_CACHE_CAPACITY); //posts and accounts as they were last shown
+	private static final int DEFAULT_VIEW_CACHE_CAPACITY = 4096;
+	private MutationJournal journal = null; //records every change once a journal is opened
+	private long journalSequence = 0; //the last journal record the platform holds
+	private PlatformChanges changes = new PlatformChanges(); //what an incremental save has to write
+	private Path snapshotBase = null; //the snapshot file the platform was last saved to or loaded from, see setBase
+	private long snapshotLength = 0; //the length that file had, so a file changed by something else is not appended to
+	private int deltaSegments = 0; //the delta segments appended to that file since it was last written in full
+	private static final int MAX_DELTA_SEGMENTS = 16; //more segments than this are compacted by a full save
+	private static final ExecutorService SNAPSHOT_WRITER = Executors.newSingleThreadExecutor(task -> {
+		Thread thread = new Thread(task, "socialmedia-snapshot-writer");
+		thread.setDaemon(true);
+		return thread;
+	}); //one thread, so background saves are written in the order they were made
+	private volatile CompletableFuture<Void> pendingSave = CompletableFuture.completedFuture(null);
+	private final LinkedHashMap<Integer, PendingRemoval> pendingRemovals = new LinkedHashMap<>(); //hidden accounts whose posts are still to be removed
+	private final HashSet<String> hiddenHandles = new HashSet<>(); //their handles, which no other account may take until then
+	private final IntHashMap<Post> replayedStandIns = new IntHashMap<>(); //generic empty posts made by replayed imports, by reference ID
+
+	/**
+	 * An account hidden by removeAccountAsync, and the future completed once its posts are removed
+	 */
+	private static class PendingRemoval {
+		private final Account account;
+		private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+		private PendingRemoval(Account account) {
+			this.account = account;
+		}
+	}
+
+	/**
+	 * Constructor for an empty platform used from one thread at a time
+	 */
+	public SocialMedia() {
+		this(false);
+	}
+
+	/**
+	 * Constructor for an empty platform
+	 * @param sharedIndex true if posts are made from several threads at once, as ConcurrentSocialMedia does, in
+	 *                    which case the post index is striped
+	 */
+	SocialMedia(boolean sharedIndex) {
+		this.sharedIndex = sharedIndex;
+		postIndex = newPostIndex();
+	}
+
+	/**
+	 * Makes an empty post index of the kind this platform uses
+	 * @return a StripedIntHashMap if posts are made from several threads at once, and a plain IntHashMap if not
+	 */
+	private IntHashMap<Post> newPostIndex() {
+		return sharedIndex ? new StripedIntHashMap<>() : new IntHashMap<>();
+	}
 
 	@Override
 	public int createAccount(String handle) throws IllegalHandleException, InvalidHandleException {
-		if (!checkHandleUnique(handle)) { //Checks to see if a handle is not unique
+		materialise();
+		if (handleTaken(handle)) { //Checks to see if a handle is not unique
 			throw new IllegalHandleException("Handle is not unique");
 		}
 		Account newUser = new Account(handle);
+		newUser.setUniqueId(accountIds.next());
 		accounts.add(newUser);  //adds the account to the arraylist
+		handles.put(newUser.getHandle(), newUser);
+		accountIndex.put(newUser.getUniqueID(), newUser);
+		changes.markAccount(newUser);
+		record(MutationJournal.CREATE_ACCOUNT, newUser.getUniqueID(), 0, handle, null);
 		return newUser.getUniqueID();
 	}
 
 	@Override
 	public int createAccount(String handle, String description) throws IllegalHandleException, InvalidHandleException {
-		if (!checkHandleUnique(handle)) {//Checks to see if a handle is not unique
+		materialise();
+		if (handleTaken(handle)) {//Checks to see if a handle is not unique
 			throw new IllegalHandleException("Handle is not unique");
 		}
 		Account newUser = new Account(handle, description);
+		newUser.setUniqueId(accountIds.next());
 		accounts.add(newUser); //adds the account to the arraylist
+		handles.put(newUser.getHandle(), newUser);
+		accountIndex.put(newUser.getUniqueID(), newUser);
+		changes.markAccount(newUser);
+		record(MutationJournal.CREATE_ACCOUNT, newUser.getUniqueID(), 0, handle, newUser.getDescription());
 		return newUser.getUniqueID();
 	}
 
 
 	@Override
 	public void removeAccount(int id) throws AccountIDNotRecognisedException {
-		for (Account account : accounts) {
-			if (id == account.getUniqueID()) {
-				for (int i = account.getAllPosts().size() - 1; i > 0; i--){ //iterates through all the posts of an account
-					try {
-						deletePost(account.getAllPosts().get(i).getSequentialID()); //calls the deletePost function
-					} catch (PostIDNotRecognisedException e) {
-						e.printStackTrace();
-					}
-				}
-				account.makeAccountRedundant();
-				accounts.remove(account); //removes the account from the array list
-				return;
-			}
+		materialise();
+		Account account = accountIndex.get(id);
+		if (account == null) {
+			throw new AccountIDNotRecognisedException("ID does not match any pre-existing IDs in the platform");
 		}
-		throw new AccountIDNotRecognisedException("ID does not match any pre-existing IDs in the platform");
+		removePostsOf(account);
+		forgetAccount(account);
+		account.makeAccountRedundant();
+		record(MutationJournal.REMOVE_ACCOUNT, id, 0, null, null);
 	}
 
 
 	@Override
 	public void removeAccount(String handle) throws HandleNotRecognisedException {
-		for (Account account : accounts) {
-			if (handle.equals(account.getHandle())) {//Check to see if the handle input is equal to the account handle
-				for (int i = account.getAllPosts().size() - 1; i >= 0; i--){
-					try{
-						deletePost(account.getAllPosts().get(i).getSequentialID()); //calls the deletePost function
-					} catch (PostIDNotRecognisedException e) {
-						e.printStackTrace();
-					}
-				}
-				account.makeAccountRedundant();
-				accounts.remove(account); //removes account from the arraylist
-				return;
-			}
+		materialise();
+		Account account = handles.get(handle);
+		if (account == null) {
+			throw new HandleNotRecognisedException("Handle does not match any pre-existing handles in the platform");
 		}
-		throw new HandleNotRecognisedException("Handle does not match any pre-existing handles in the platform");
+		removePostsOf(account);
+		forgetAccount(account);
+		account.makeAccountRedundant();
+		record(MutationJournal.REMOVE_ACCOUNT, account.getUniqueID(), 0, null, null);
+	}
 
+	@Override
+	public CompletableFuture<Void> removeAccountAsync(int id) throws AccountIDNotRecognisedException {
+		materialise();
+		Account account = accountIndex.get(id);
+		if (account == null) {
+			throw new AccountIDNotRecognisedException("ID does not match any pre-existing IDs in the platform");
+		}
+		forgetAccount(account); //hidden at once, its posts are removed by finishAccountRemovals
+		PendingRemoval removal = new PendingRemoval(account);
+		pendingRemovals.put(id, removal);
+		hiddenHandles.add(account.getHandle()); //so a new account cannot look like the author of the hidden posts
+		hidePostsOf(account);
+		record(MutationJournal.HIDE_ACCOUNT, id, 0, null, null);
+		return removal.done;
 	}
 
 	@Override
-	public void changeAccountHandle(String oldHandle, String newHandle) throws HandleNotRecognisedException, IllegalHandleException, InvalidHandleException {
-		for (Account account : accounts) {
-			if (!oldHandle.equals(account.getHandle())) {
-				if (!checkHandleUnique(oldHandle)) { //checks if the handle is unqiue
-					throw new IllegalHandleException("Handle is not unique");
-				} else {
-					account.setHandle(newHandle); //sets the handle
-					return;
+	public void finishAccountRemovals() {
+		while (!pendingRemovals.isEmpty()) {
+			finishAccountRemoval(pendingRemovals.keySet().iterator().next()); //in the order they were hidden
+		}
+	}
+
+	/**
+	 * Checks whether an account hidden by removeAccountAsync still has posts to be removed
+	 * @return true if finishAccountRemovals has work to do, and false if not
+	 */
+	boolean hasPendingRemovals() {
+		return !pendingRemovals.isEmpty();
+	}
+
+	/**
+	 * Removes the posts of an account hidden by removeAccountAsync
+	 * @param id the unique ID the account had
+	 * @return false if no account with that ID is waiting to be removed
+	 */
+	private boolean finishAccountRemoval(int id) {
+		PendingRemoval removal = pendingRemovals.get(id);
+		if (removal == null) {
+			return false;
+		}
+		removePostsOf(removal.account);
+		pendingRemovals.remove(id); //only now, so the posts' endorsements are not ranked for the account again
+		hiddenHandles.remove(removal.account.getHandle());
+		removal.account.makeAccountRedundant();
+		changes.markAccount(removal.account);
+		record(MutationJournal.REMOVE_HIDDEN_ACCOUNT, id, 0, null, null);
+		removal.done.complete(null);
+		return true;
+	}
+
+	/**
+	 * Takes the posts of an account hidden by removeAccountAsync out of the post index, the totals and the
+	 * rankings, along with the endorsements others made of them, so none of them can be found or replied to.
+	 * They stay linked into their threads until removePostsOf removes them
+	 * @param account the Account being hidden, which is already in pendingRemovals
+	 */
+	private void hidePostsOf(Account account) {
+		for (Post post : account.getAllPosts()) {
+			if (postIndex.get(post.getSequentialID()) != post) {
+				continue; //already replaced by the generic empty post
+			}
+			for (Endorsement e : post.getEndorsements()) {
+				unindexPost(e); //which takes its endorsement off the post's ranking
+			}
+			unindexPost(post);
+		}
+	}
+
+	/**
+	 * Takes an account out of the account lookups, the list of accounts and the account ranking
+	 * @param account the Account being removed
+	 */
+	private void forgetAccount(Account account) {
+		if (handles.get(account.getHandle()) == account) {
+			handles.remove(account.getHandle());
+		}
+		accountIndex.remove(account.getUniqueID());
+		accountRanking.remove(account.getUniqueID());
+		views.invalidate(ViewCache.accountKey(account.getUniqueID()));
+		accounts.remove(account);
+		changes.markAccount(account);
+	}
+
+	/**
+	 * Removes every post, comment and endorsement an account made, and the endorsements others made of them, in
+	 * one pass over the account's posts. As deletePost does, a post or comment that still has replies from other
+	 * accounts is replaced by the generic empty post. The posts are visited newest first, so the account's own
+	 * replies are gone before what they reply to, and each post they replied to has its comments compacted once
+	 * at the end rather than once per reply
+	 * @param account the Account whose posts are removed
+	 */
+	private void removePostsOf(Account account) {
+		Post[] userPosts = account.getAllPosts().toArray(new Post[0]);
+		Set<Post> removedComments = Collections.newSetFromMap(new IdentityHashMap<>());
+		IdentityHashMap<Post, int[]> repliesRemoved = new IdentityHashMap<>(); //per post, how many of its comments are in removedComments
+		for (int i = userPosts.length - 1; i >= 0; i--) {
+			Post post = userPosts[i];
+			if (post.getSequentialID() == 0 || !account.getAllPosts().contains(post)) {
+				continue; //already replaced by the generic empty post, or removed along with an earlier post
+			}
+			if (post instanceof Endorsement) {
+				Post endorsed = ((Endorsement) post).getPost();
+				endorsed.getEndorsements().remove(post);
+				endorsed.endorsementsChanged(-1);
+				account.removeUserPost(post);
+				unindexPost(post);
+				continue;
+			}
+			for (Endorsement e : post.getEndorsements()) { //endorsements others made of the post go with it
+				e.getAccount().removeUserPost(e);
+				unindexPost(e);
+			}
+			post.endorsementsChanged(-post.getEndorsements().size());
+			post.getEndorsements().clear();
+			int[] removedReplies = repliesRemoved.get(post);
+			unindexPost(post);
+			if (post.getComments().size() > (removedReplies == null ? 0 : removedReplies[0])) {
+				post.setMessage(Post.REMOVED_MESSAGE); //replies from other accounts are kept under the generic empty post
+				post.setSequentialID(0);
+				if (!(post instanceof Comment)) {
+					account.removeUserPost(post);
 				}
+				continue;
 			}
+			account.removeUserPost(post);
+			if (post instanceof Comment) {
+				removedComments.add(post);
+				repliesRemoved.computeIfAbsent(((Comment) post).getPost(), parent -> new int[1])[0]++;
+				post.discountFromThread();
+			}
+		}
+		for (Post parent : repliesRemoved.keySet()) {
+			parent.getComments().removeIf(removedComments::contains);
 		}
-		throw new HandleNotRecognisedException("Handle does not match any pre-existing handles in the platform");
+		for (Post parent : repliesRemoved.keySet()) {
+			parent.settleThreadDepth(); //once every list is compacted, so the depths are worked out from what is left
+		}
+	}
 
+	@Override
+	public void changeAccountHandle(String oldHandle, String newHandle) throws HandleNotRecognisedException, IllegalHandleException, InvalidHandleException {
+		materialise();
+		Account account = handles.get(oldHandle);
+		if (account == null) {
+			throw new HandleNotRecognisedException("Handle does not match any pre-existing handles in the platform");
+		}
+		if (handleTaken(newHandle)) { //checks if the new handle is unique
+			throw new IllegalHandleException("Handle is not unique");
+		}
+		account.setHandle(newHandle); //sets the handle, the index is only updated once the handle is valid
+		handles.remove(oldHandle);
+		handles.put(newHandle, account);
+		views.invalidate(ViewCache.accountKey(account.getUniqueID()));
+		for (Post post : account.getAllPosts()) { //every post of the account shows its handle
+			views.invalidate(ViewCache.postKey(post.getSequentialID()));
+		}
+		changes.markAccount(account);
+		record(MutationJournal.CHANGE_HANDLE, 0, 0, oldHandle, newHandle);
 	}
 
 	@Override
 	public void updateAccountDescription(String handle, String description) throws HandleNotRecognisedException {
-		for (Account account : accounts) {
-			if (handle.equals(account.getHandle())) { //checks if the handle is equal to the account
-				if (!account.descriptionIsEmpty(description)) {
-					account.setDescription(description);
-					return;
-				}
-			}
+		materialise();
+		Account account = handles.get(handle);
+		if (account == null) {
+			throw new HandleNotRecognisedException("Handle does not match pre-existing handles in the platform");
+		}
+		if (account.descriptionIsEmpty(description)) {
+			throw new HandleNotRecognisedException("Handle does not match pre-existing handles in the platform");
 		}
-		throw new HandleNotRecognisedException("Handle does not match pre-existing handles in the platform");
+		account.setDescription(description);
+		views.invalidate(ViewCache.accountKey(account.getUniqueID()));
+		changes.markAccount(account);
+		record(MutationJournal.UPDATE_DESCRIPTION, 0, 0, handle, description);
 	}
 
 	@Override
 	public String showAccount(String handle) throws HandleNotRecognisedException {
-		for (Account account : accounts) {
-			if (handle.equals(account.getHandle())) {
-				return account.toString();
+		MappedSnapshot snapshot = mapped;
+		if (snapshot != null) {
+			String shown = snapshot.showAccount(handle);
+			if (shown == null) {
+				throw new HandleNotRecognisedException("Handle does not match pre-existing handles in the platform");
+			}
+			return shown;
+		}
+		Account account = handles.get(handle);
+		if (account == null) {
+			throw new HandleNotRecognisedException("Handle does not match pre-existing handles in the platform");
+		}
+		return showAccount(account);
+	}
+
+	@Override
+	public String showAccount(int id) throws AccountIDNotRecognisedException {
+		MappedSnapshot snapshot = mapped;
+		if (snapshot != null) {
+			String shown = snapshot.showAccount(id);
+			if (shown == null) {
+				throw new AccountIDNotRecognisedException("ID does not match any pre-existing IDs in the platform");
 			}
+			return shown;
+		}
+		Account account = accountIndex.get(id);
+		if (account == null) {
+			throw new AccountIDNotRecognisedException("ID does not match any pre-existing IDs in the platform");
+		}
+		return showAccount(account);
+	}
+
+	/**
+	 * Shows an account from the view cache, rendering and caching it if it is not there
+	 * @param account the Account to show
+	 * @return what the Account's toString() returns
+	 */
+	private String showAccount(Account account) {
+		int key = ViewCache.accountKey(account.getUniqueID());
+		String shown = views.get(key, 0);
+		if (shown == null) {
+			shown = account.toString();
+			views.put(key, 0, shown);
 		}
-		throw new HandleNotRecognisedException("Handle does not match pre-existing handles in the platform");
+		return shown;
 	}
 
 
 	@Override
 	public int createPost(String handle, String message) throws HandleNotRecognisedException, InvalidPostException {
-		if (!checkHandleUnique(handle)) {
+		materialise();
+		Account account = getAccount(handle);
+		if (account != null) {
 			Post createPost = new Post(message);
-			for (Account account : accounts) {
-				if (handle.equals(account.getHandle())) {
-					account.addUserPost(createPost, account); //Adds the new post to the appropriate ArrayLists
-				}
-			}
+			createPost.setSequentialID(postIds.next());
+			record(MutationJournal.CREATE_POST, createPost.getSequentialID(), 0, handle, message); //journaled before the post can be found, so nothing made on it is journaled first
+			account.addUserPost(createPost, account); //Adds the new post to the appropriate ArrayLists
+			indexPost(createPost);
+			changes.markPost(createPost);
 			return createPost.getSequentialID();
 		} else {
 			throw new HandleNotRecognisedException("Handle does not match pre-existing handles");
@@ -134,35 +405,39 @@ public class SocialMedia implements SocialMediaPlatform {
 	@Override
 	public int endorsePost(String handle, int id)
 			throws HandleNotRecognisedException, PostIDNotRecognisedException, NotActionablePostException {
+		materialise();
 		if (id == 0){
 			throw new PostIDNotRecognisedException("Post ID not recognised");
 		}
 
-		if (!checkHandleUnique(handle)) {
-			for (Account account : accounts) { //Checks all posts in all accounts
-				for (Post post : account.getAllPosts()) {
-					if (id == post.getSequentialID()) {//Checks to see if the id input is the same a the id of the post currently being checked
-						if (post instanceof Endorsement) {
-							throw new NotActionablePostException("Endorsements cannot be endorsed");
-						}
-						Endorsement endorsement = new Endorsement(post, getAccount(handle));
-						Post target_post = account.getPost(id);
-						target_post.addToEndorsements(endorsement);
-						Account owner_account = getAccount(handle);
-						owner_account.getAllPosts().add(endorsement); //adds to the Account AllPost arraylist
-						return endorsement.getSequentialID();
-					}
-				}
-			}
-			throw new PostIDNotRecognisedException("Post id does not match pre-existing post ID");
-		} else {
+		Account endorser = getAccount(handle);
+		if (endorser == null) {
 			throw new HandleNotRecognisedException("Handle does not match pre-existing handles in the platform");
 		}
+		Post targetPost = postIndex.get(id);
+		if (targetPost == null) {
+			throw new PostIDNotRecognisedException("Post id does not match pre-existing post ID");
+		}
+		if (targetPost instanceof Endorsement) {
+			throw new NotActionablePostException("Endorsements cannot be endorsed");
+		}
+		Endorsement endorsement = new Endorsement(targetPost, endorser);
+		endorsement.setSequentialID(postIds.next());
+		record(MutationJournal.ENDORSE_POST, endorsement.getSequentialID(), id, handle, null);
+		synchronized (targetPost.threadRoot()) { //the counts of the thread are shared with posts of other accounts
+			targetPost.addToEndorsements(endorsement);
+			targetPost.endorsementsChanged(1);
+		}
+		endorser.addToAllPostsEndorsement(endorsement); //adds to the Account AllPost arraylist
+		indexPost(endorsement);
+		changes.markPost(endorsement);
+		return endorsement.getSequentialID();
 	}
 
 	@Override
 	public int commentPost(String handle, int id, String message) throws HandleNotRecognisedException,
 			PostIDNotRecognisedException, NotActionablePostException, InvalidPostException {
+		materialise();
 		if (checkHandleUnique(handle)) {
 			throw new HandleNotRecognisedException("Handle does not match any pre-existing handles in the platform");
 
@@ -175,25 +450,219 @@ public class SocialMedia implements SocialMediaPlatform {
 		if (checkNotEndorsement(id)) { //checks whether the ID does not belong to an endorsement
 			throw new NotActionablePostException("ID is an endorsement which cannot have a child");
 		}
-		Comment comment = null;
-		Account accountBy = getAccount(handle);
-		for (Account account : accounts) {
-			for (Post post : account.getAllPosts()) {//all posts in all accounts are checked
-				if (id == post.getSequentialID()) {
-					Post targetPost = account.getPost(id);
-					comment = new Comment(accountBy, message, targetPost);
-					targetPost.addToComments(comment);//The following two lines adds the comments to the appropriate arrays
-					accountBy.addToAllPostsComment(comment);
-					break;
+		return addComment(getAccount(handle), postIndex.get(id), message).getSequentialID();
+	}
+
+	/**
+	 * Adds a comment to a post that commentPost has checked, or to a generic empty post made by an import
+	 * @param accountBy the account making the comment
+	 * @param targetPost the post it replies to
+	 * @param message the message of the comment
+	 * @return the comment
+	 * @throws InvalidPostException if the message is empty or too long
+	 */
+	private Comment addComment(Account accountBy, Post targetPost, String message) throws InvalidPostException {
+		Comment comment = new Comment(accountBy, message, targetPost);
+		comment.setSequentialID(postIds.next());
+		record(MutationJournal.COMMENT_POST, comment.getSequentialID(), targetPost.getReferenceID(),
+				accountBy.getHandle(), message);
+		synchronized (targetPost.threadRoot()) {
+			targetPost.addToComments(comment);//The following two lines adds the comments to the appropriate arrays
+			comment.addedToThread();
+		}
+		accountBy.addToAllPostsComment(comment);
+		indexPost(comment);
+		changes.markPost(comment);
+		return comment;
+	}
+
+
+	@Override
+	public BatchResult createAccounts(String[] accountHandles, String[] descriptions) {
+		if (descriptions != null && descriptions.length != accountHandles.length) {
+			throw new IllegalArgumentException("There must be one description for each handle");
+		}
+		materialise();
+		BatchResult result = new BatchResult(accountHandles.length);
+		Account[] created = new Account[accountHandles.length];
+		HashSet<String> batchHandles = new HashSet<>(); //handles taken by earlier items of the batch
+		int valid = 0;
+		for (int i = 0; i < accountHandles.length; i++) { //validates every item before anything is changed
+			try {
+				if (handleTaken(accountHandles[i]) || batchHandles.contains(accountHandles[i])) {
+					throw new IllegalHandleException("Handle is not unique");
+				}
+				created[i] = new Account(accountHandles[i], descriptions == null ? null : descriptions[i]);
+				batchHandles.add(accountHandles[i]);
+				valid++;
+			} catch (IllegalHandleException | InvalidHandleException e) {
+				result.fail(i, e);
+			}
+		}
+		int id = accountIds.allocate(valid); //the valid items take consecutive IDs
+		for (int i = 0; i < created.length; i++) {
+			Account newUser = created[i];
+			if (newUser == null) {
+				continue;
+			}
+			newUser.setUniqueId(id++);
+			accounts.add(newUser);
+			handles.put(newUser.getHandle(), newUser);
+			accountIndex.put(newUser.getUniqueID(), newUser);
+			changes.markAccount(newUser);
+			record(MutationJournal.CREATE_ACCOUNT, newUser.getUniqueID(), 0, newUser.getHandle(), newUser.getDescription());
+			result.succeed(i, newUser.getUniqueID());
+		}
+		return result;
+	}
+
+	@Override
+	public BatchResult createPosts(String[] authorHandles, String[] messages) {
+		if (messages.length != authorHandles.length) {
+			throw new IllegalArgumentException("There must be one message for each handle");
+		}
+		materialise();
+		BatchResult result = new BatchResult(authorHandles.length);
+		Account[] authors = new Account[authorHandles.length];
+		Post[] created = new Post[authorHandles.length];
+		int valid = 0;
+		for (int i = 0; i < authorHandles.length; i++) {
+			try {
+				authors[i] = handles.get(authorHandles[i]);
+				if (authors[i] == null) {
+					throw new HandleNotRecognisedException("Handle does not match pre-existing handles");
+				}
+				created[i] = new Post(messages[i]);
+				valid++;
+			} catch (HandleNotRecognisedException | InvalidPostException e) {
+				result.fail(i, e);
+			}
+		}
+		int id = postIds.allocate(valid);
+		for (int i = 0; i < created.length; i++) {
+			Post createPost = created[i];
+			if (createPost == null) {
+				continue;
+			}
+			createPost.setSequentialID(id++);
+			authors[i].addUserPost(createPost, authors[i]);
+			indexPost(createPost);
+			changes.markPost(createPost);
+			record(MutationJournal.CREATE_POST, createPost.getSequentialID(), 0, authorHandles[i], messages[i]);
+			result.succeed(i, createPost.getSequentialID());
+		}
+		return result;
+	}
+
+	@Override
+	public BatchResult endorsePosts(String[] endorserHandles, int[] ids) {
+		if (ids.length != endorserHandles.length) {
+			throw new IllegalArgumentException("There must be one post ID for each handle");
+		}
+		materialise();
+		BatchResult result = new BatchResult(endorserHandles.length);
+		Endorsement[] created = new Endorsement[endorserHandles.length];
+		int valid = 0;
+		for (int i = 0; i < endorserHandles.length; i++) {
+			try {
+				if (ids[i] == 0) {
+					throw new PostIDNotRecognisedException("Post ID not recognised");
+				}
+				Account endorser = handles.get(endorserHandles[i]);
+				if (endorser == null) {
+					throw new HandleNotRecognisedException("Handle does not match pre-existing handles in the platform");
 				}
+				Post targetPost = postIndex.get(ids[i]);
+				if (targetPost == null) {
+					throw new PostIDNotRecognisedException("Post id does not match pre-existing post ID");
+				}
+				if (targetPost instanceof Endorsement) {
+					throw new NotActionablePostException("Endorsements cannot be endorsed");
+				}
+				created[i] = new Endorsement(targetPost, endorser);
+				valid++;
+			} catch (HandleNotRecognisedException | PostIDNotRecognisedException | NotActionablePostException e) {
+				result.fail(i, e);
+			}
+		}
+		int id = postIds.allocate(valid);
+		for (int i = 0; i < created.length; i++) {
+			Endorsement endorsement = created[i];
+			if (endorsement == null) {
+				continue;
 			}
+			endorsement.setSequentialID(id++);
+			endorsement.getPost().addToEndorsements(endorsement);
+			endorsement.getPost().endorsementsChanged(1);
+			endorsement.getAccount().addToAllPostsEndorsement(endorsement);
+			indexPost(endorsement);
+			changes.markPost(endorsement);
+			record(MutationJournal.ENDORSE_POST, endorsement.getSequentialID(), ids[i], endorserHandles[i], null);
+			result.succeed(i, endorsement.getSequentialID());
 		}
-		return comment.getSequentialID();
+		return result;
 	}
 
+	@Override
+	public BatchResult commentPosts(String[] authorHandles, int[] ids, String[] messages) {
+		if (ids.length != authorHandles.length || messages.length != authorHandles.length) {
+			throw new IllegalArgumentException("There must be one post ID and one message for each handle");
+		}
+		materialise();
+		BatchResult result = new BatchResult(authorHandles.length);
+		Comment[] created = new Comment[authorHandles.length];
+		int valid = 0;
+		for (int i = 0; i < authorHandles.length; i++) {
+			try {
+				Account accountBy = handles.get(authorHandles[i]);
+				if (accountBy == null) {
+					throw new HandleNotRecognisedException("Handle does not match any pre-existing handles in the platform");
+				}
+				Post targetPost = postIndex.get(ids[i]);
+				if (targetPost == null) {
+					throw new PostIDNotRecognisedException("Post ID not recognised");
+				}
+				if (targetPost instanceof Endorsement) {
+					throw new NotActionablePostException("ID is an endorsement which cannot have a child");
+				}
+				created[i] = new Comment(accountBy, messages[i], targetPost);
+				valid++;
+			} catch (HandleNotRecognisedException | PostIDNotRecognisedException | NotActionablePostException
+					| InvalidPostException e) {
+				result.fail(i, e);
+			}
+		}
+		int id = postIds.allocate(valid);
+		for (int i = 0; i < created.length; i++) {
+			Comment comment = created[i];
+			if (comment == null) {
+				continue;
+			}
+			comment.setSequentialID(id++);
+			comment.getPost().addToComments(comment);
+			comment.addedToThread();
+			comment.getAccount().addToAllPostsComment(comment);
+			indexPost(comment);
+			changes.markPost(comment);
+			record(MutationJournal.COMMENT_POST, comment.getSequentialID(), ids[i], authorHandles[i], messages[i]);
+			result.succeed(i, comment.getSequentialID());
+		}
+		return result;
+	}
 
 	@Override
 	public void deletePost(int id) throws PostIDNotRecognisedException {
+		materialise();
+		removePost(id);
+		record(MutationJournal.DELETE_POST, 0, id, null, null);
+	}
+
+	/**
+	 * Deletes a post as deletePost does, without journaling it
+	 * @param id the sequential ID of the post
+	 * @throws PostIDNotRecognisedException if the ID does not match a post in the platform
+	 */
+	private void removePost(int id) throws PostIDNotRecognisedException {
 		//Checks if user ID is valid
 		if (checkPostID(id)) {
 			throw new PostIDNotRecognisedException("Post ID does not match pre-existing ids in the system");
@@ -201,35 +670,29 @@ public class SocialMedia implements SocialMediaPlatform {
 
 		//Checks if post is an orphan
 		if (checkOrphan(id)) {
-			Account deleteUserPost = getAccountByPostId(id);
-			Post deletedPost = deleteUserPost.getPost(id);
-			for (Account account : accounts) {//all posts in all accounts are checked
-				for (Post post : account.getAllPosts()) {
-					if (deletedPost.equals(post) && post.getComments().size() == 0) {
-						try{
-							//deletes all endorsements belonging to a post
-							for (Endorsement e : deletedPost.getEndorsements()){
-								e.getAccount().getAllPosts().remove(e);
-								e.getPost().getEndorsements().remove(e);
-								break;
-							}
-						}catch(NullPointerException e) {
-							continue;
-						}
-						account.getAllPosts().remove(post);
-						break;
-					}
-				}
+			Post deletedPost = postIndex.get(id);
+			Account deleteUserPost = deletedPost.getAccount();
+			//deletes all endorsements belonging to a post
+			for (Endorsement e : deletedPost.getEndorsements()) {
+				e.getAccount().removeUserPost(e);
+				unindexPost(e);
 			}
+			deletedPost.endorsementsChanged(-deletedPost.getEndorsements().size());
 			if (deletedPost instanceof Endorsement){
 				//deletes an endorsement
 				Endorsement delete = (Endorsement) deletedPost;
 				delete.getPost().getEndorsements().remove(delete);
+				delete.getPost().endorsementsChanged(-1);
+			}
+			if (deletedPost instanceof Comment){
+				//detaches the comment from the post it replied to
+				((Comment) deletedPost).getPost().getComments().remove(deletedPost);
+				deletedPost.removedFromThread();
 			}
 
 			deletedPost.getEndorsements().clear();
-			deleteUserPost.getPosts().remove(deletedPost);
-			deleteUserPost.getAllPosts().remove(deletedPost);
+			deleteUserPost.removeUserPost(deletedPost);
+			unindexPost(deletedPost);
 		} else {
 			genWithChildren(id);
 		}
@@ -241,19 +704,30 @@ public class SocialMedia implements SocialMediaPlatform {
 		if(id==0){ //checks whether user has attempted to get an ID that begins with 0 and throws an error
 			throw new PostIDNotRecognisedException("Post ID not recognised");
 		}
-		for (Account account : accounts) {//all posts in all accounts are checked
-			for (Post post : account.getAllPosts()) {
-				if (post.getSequentialID() == id) {
-					return post.toString();
-				}
+		MappedSnapshot snapshot = mapped;
+		if (snapshot != null) {
+			String shown = snapshot.showIndividualPost(id);
+			if (shown == null) {
+				throw new PostIDNotRecognisedException("Post ID not recognised");
 			}
+			return shown;
 		}
-		throw new PostIDNotRecognisedException("Post ID not recognised");
+		Post post = postIndex.get(id);
+		if (post == null) {
+			throw new PostIDNotRecognisedException("Post ID not recognised");
+		}
+		String shown = views.get(ViewCache.postKey(id), post.getCounter()); //a view indented differently is rendered again
+		if (shown == null) {
+			shown = post.toString();
+			views.put(ViewCache.postKey(id), post.getCounter(), shown);
+		}
+		return shown;
 	}
 
 
 	@Override
 	public StringBuilder showPostChildrenDetails(int id) throws PostIDNotRecognisedException, NotActionablePostException {
+		materialise();
 		if (checkPostID(id)) { //checks whether post id is valid
 			throw new PostIDNotRecognisedException("Post ID not recognised");
 		}
@@ -262,270 +736,1094 @@ public class SocialMedia implements SocialMediaPlatform {
 			throw new NotActionablePostException("Endorsement do not have children");
 		}
 
-		StringBuilder postChildren = new StringBuilder();
-		postChildren.append("\t\t");
-		for (Account account : accounts) {//all posts in all accounts are checked
-			for (Post post : account.getAllPosts()) {
-				if (post.getSequentialID() == id) {
-					postChildren = post.getChildrenComments(1);
-				}
+		return postIndex.get(id).getChildrenComments(1);
+	}
 
-			}
+	@Override
+	public void showPostChildrenDetails(int id, Appendable out)
+			throws PostIDNotRecognisedException, NotActionablePostException, IOException {
+		materialise();
+		if (checkPostID(id)) {
+			throw new PostIDNotRecognisedException("Post ID not recognised");
+		}
+		if (checkNotEndorsement(id)) {
+			throw new NotActionablePostException("Endorsement do not have children");
+		}
+		postIndex.get(id).writeChildrenComments(1, out);
+	}
+
+	@Override
+	public CommentPage showPostChildrenPage(int id, String cursor, int limit)
+			throws PostIDNotRecognisedException, NotActionablePostException {
+		materialise();
+		if (checkPostID(id)) {
+			throw new PostIDNotRecognisedException("Post ID not recognised");
+		}
+		if (checkNotEndorsement(id)) {
+			throw new NotActionablePostException("Endorsement do not have children");
+		}
+		Post post = postIndex.get(id);
+		synchronized (post.threadRoot()) { //comments are added to the thread under the same monitor
+			return CommentPage.read(post, cursor, limit, postIndex);
 		}
-		return postChildren;
 	}
 
 	@Override
 	public int getNumberOfAccounts() {
+		MappedSnapshot snapshot = mapped;
+		if (snapshot != null) {
+			return snapshot.getAccountCount();
+		}
 		return accounts.size(); //returns the arraylist of the accounts;
 	}
 
 
 	@Override
 	public int getTotalOriginalPosts() {
-		int total = 0;
-		for (Account account : accounts) {
-			total=total+account.getPosts().size();
-		}
-		return total;
+		MappedSnapshot snapshot = mapped;
+		return snapshot != null ? snapshot.getOriginalPostCount() : totalOriginalPosts.intValue();
 	}
 
 
 	@Override
 	public int getTotalEndorsmentPosts() {
-		int total = 0;
-		for (Account account : accounts) {//all posts in all accounts are checked
-			for (Post post : account.getAllPosts()) {
-				if(post instanceof Endorsement){
-					total++;
-				}
-			}
-		}
-		return total;
+		MappedSnapshot snapshot = mapped;
+		return snapshot != null ? snapshot.getEndorsementCount() : totalEndorsementPosts.intValue();
 	}
 
 	@Override
 	public int getTotalCommentPosts() {
-		int total = 0;
-		for (Account account : accounts) {//all posts in all accounts are checked
-			for (Post post : account.getAllPosts()) {
-				if(post instanceof Comment){
-					total++;
-				}
-			}
-		}
-		return total;
+		MappedSnapshot snapshot = mapped;
+		return snapshot != null ? snapshot.getCommentCount() : totalCommentPosts.intValue();
 	}
 
 
 	@Override
 	public int getMostEndorsedPost() {
-		int most = 0;
-		for (Account account : accounts) {//all posts in all accounts are checked
-			for (Post post : account.getPosts()) {
-				if (post.getEndorsements().size() > most) {
-					most = post.getEndorsements().size();
-				}
-			}
-		}
-		return most;
+		MappedSnapshot snapshot = mapped;
+		return snapshot != null ? snapshot.getMostEndorsedPost() : postRanking.getLeader();
 	}
 
 
 	@Override
 	public int getMostEndorsedAccount() {
-		try {
-			Account most=null;
-			int mostEndorsements=0;
-			for(Account account:accounts){//all posts in all accounts are checked
-				for(Post post:account.getPosts()){
-					if(post.getEndorsements().size()>mostEndorsements){//If a post with more endorsements is found the account most is replaced
-						mostEndorsements=post.getEndorsements().size();
-						most=account;
-					}
-				}
-			}
-			return most.getUniqueID();
-		} catch  (NullPointerException e){
-			return 0;
-		}
+		MappedSnapshot snapshot = mapped;
+		return snapshot != null ? snapshot.getMostEndorsedAccount() : accountRanking.getLeader();
+	}
 
+	@Override
+	public int[] getMostEndorsedPosts(int k) {
+		materialise();
+		return postRanking.getTop(k);
 	}
 
 	@Override
-	public void erasePlatform() {
-		for (Account account:accounts){//all posts in all accounts are checked
-			for(Post post:account.getPosts()){
-				post.setSEQID(0);
-			}
-		}
-		for(int i = 0; i < accounts.size(); i++){
-			accounts.get(i).getAllPosts().clear();
-			accounts.get(i).setUniqueId(0);
-			accounts.remove(accounts.get(i));
+	public int[] getMostEndorsedAccounts(int k) {
+		materialise();
+		return accountRanking.getTop(k);
+	}
 
-			i--;
+	@Override
+	public int getThreadCommentCount(int id) throws PostIDNotRecognisedException, NotActionablePostException {
+		Post post = threadOf(id);
+		synchronized (post.threadRoot()) {
+			return post.getThreadComments();
 		}
-
 	}
 
-
 	@Override
-	public void savePlatform(String filename) throws IOException {
-		FileOutputStream fileOut = new FileOutputStream(filename);
-		ObjectOutputStream out = new ObjectOutputStream(fileOut);
-		out.writeObject(accounts);
-		out.close();
-		fileOut.close();
+	public int getThreadDepth(int id) throws PostIDNotRecognisedException, NotActionablePostException {
+		Post post = threadOf(id);
+		synchronized (post.threadRoot()) {
+			return post.getThreadDepth();
+		}
 	}
 
-
 	@Override
-	public void loadPlatform(String filename) throws IOException, ClassNotFoundException {
-		try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(filename))) {
-			Object obj = in.readObject();
-			if (obj instanceof ArrayList) {
-				accounts = (ArrayList<Account>) obj;
-			}
+	public int getThreadEndorsementCount(int id) throws PostIDNotRecognisedException, NotActionablePostException {
+		Post post = threadOf(id);
+		synchronized (post.threadRoot()) {
+			return post.getThreadEndorsements();
 		}
 	}
 
 	/**
-	 * Checks if the Handle given is unique
-	 * @param suggestedHandle a String that is suggested by an Account
-	 * @return true if the handle is Unique, and false if it is not unique
+	 * Looks up a post whose thread is asked about
+	 * @param id the sequential ID of the post
+	 * @return the Post, which is not an endorsement
+	 * @throws PostIDNotRecognisedException if the ID does not match a post in the platform
+	 * @throws NotActionablePostException if the ID refers to an endorsement
 	 */
-	public boolean checkHandleUnique(String suggestedHandle) {
-		for (Account account : accounts) { //compares all handles in an account to the suggested handle
-			if (suggestedHandle.equals(account.getHandle())) {
-				return false;
-			}
+	private Post threadOf(int id) throws PostIDNotRecognisedException, NotActionablePostException {
+		materialise();
+		if (checkPostID(id)) {
+			throw new PostIDNotRecognisedException("Post ID not recognised");
 		}
-		return true;
+		if (checkNotEndorsement(id)) {
+			throw new NotActionablePostException("Endorsement do not have children");
+		}
+		return postIndex.get(id);
 	}
 
-	/**
-	 * Gets the Account
-	 * @param handle a String that identifies an Account
-	 * @return an Account object with the same handle
-	 */
-	public Account getAccount(String handle) {
-		for (Account account : accounts) {
-			if (account.getHandle().equals(handle)) {
-				return account;
-			}
-		}
-		return null;
+	@Override
+	public void setViewCacheCapacity(int capacity) {
+		views.setCapacity(capacity);
 	}
 
-	/**
-	 * Checks whether the post ID matches a pre-exisitng Post in the system.
-	 * @param id the integer that identifies a Post
-	 * @return a boolean: true if found or false if not
-	 * @throws PostIDNotRecognisedException
-	 */
-	public boolean checkPostID(int id) throws PostIDNotRecognisedException {
-		if (id == 0){ //checks whether user has attemtped to input 0
-			throw new PostIDNotRecognisedException("Post Id not recognised");
-		}
+	@Override
+	public long getViewCacheHits() {
+		return views.getHits();
+	}
 
-		for (Account account : accounts) {
-			for (Post post : account.getAllPosts()) { //iterates through each account's posts
-				if (post.getSequentialID() == id) {
-					return false;
-				}
-			}
-		}
-		return true;
+	@Override
+	public long getViewCacheMisses() {
+		return views.getMisses();
 	}
 
-	@Deprecated
-	public boolean checkNotEndorsement(int id) {
-		for (Account account : accounts) {
-			for (Post post : account.getAllPosts()) {
-				if (post.getSequentialID() == id) {
-					if (post instanceof Endorsement) {
-						return true;
+	@Override
+	public long getViewCacheEvictions() {
+		return views.getEvictions();
+	}
+
+	@Override
+	public void erasePlatform() {
+		finishAccountRemovals(); //completes their futures, and journals them before the platform is erased
+		mapped = null; //the mapped snapshot is dropped without being materialised
+		accounts.clear();
+		accountIds.reset(0); //the IDs start again from 1
+		postIds.reset(0);
+		handles.clear();
+		accountIndex.clear();
+		postIndex.clear();
+		totalOriginalPosts.reset();
+		totalEndorsementPosts.reset();
+		totalCommentPosts.reset();
+		postRanking.clear();
+		accountRanking.clear();
+		views.clear();
+		changes = new PlatformChanges();
+		changes.requireFull();
+		record(MutationJournal.ERASE_PLATFORM, 0, 0, null, null);
+	}
+
+
+	@Override
+	public void savePlatform(String filename) throws IOException {
+		awaitPendingSave();
+		MappedSnapshot snapshot = mapped;
+		if (snapshot != null) {
+			snapshot.copyTo(filename, journal != null); //nothing has changed since the snapshot was loaded
+		} else {
+			writeSnapshot(filename, capture(), journal != null); //the snapshot must be on the disk before the journal is emptied
+		}
+		changes.clear();
+		setBase(filename, Files.size(Path.of(filename)), 0);
+		if (journal != null) {
+			journal.truncate(journalSequence); //the snapshot holds every record, so the journal starts again after it
+		}
+	}
+
+	@Override
+	public CompletableFuture<Void> savePlatformAsync(String filename) {
+		MappedSnapshot mappedSnapshot = mapped;
+		PlatformSnapshot snapshot = mappedSnapshot == null ? capture() : null; //the point in time the file will hold
+		MutationJournal activeJournal = journal;
+		long sequence = journalSequence;
+		changes.clear(); //changes from here on are left for the next incremental save
+		CompletableFuture<Void> saved = new CompletableFuture<>();
+		SNAPSHOT_WRITER.execute(() -> {
+			try {
+				if (mappedSnapshot != null) {
+					mappedSnapshot.copyTo(filename, activeJournal != null);
+				} else {
+					writeSnapshot(filename, snapshot, activeJournal != null);
+				}
+				setBase(filename, Files.size(Path.of(filename)), 0);
+				if (activeJournal != null) {
+					activeJournal.truncate(sequence); //keeps the records made while the snapshot was written
+				}
+				saved.complete(null);
+			} catch (IOException | RuntimeException e) {
+				setBase(null, 0, 0); //the changes captured are not saved anywhere, so the next save is a full one
+				saved.completeExceptionally(e);
+			}
+		});
+		pendingSave = saved;
+		return saved;
+	}
+
+	@Override
+	public void savePlatformCompressed(String filename, int codec) throws IOException {
+		awaitPendingSave();
+		materialise();
+		BlockSnapshot.write(filename, capture(), codec, journal != null, ForkJoinPool.commonPool());
+		changes.clear();
+		setBase(null, 0, 0); //delta segments are only appended to an uncompressed snapshot
+		if (journal != null) {
+			journal.truncate(journalSequence);
+		}
+	}
+
+	@Override
+	public void savePlatformSharded(String filename, int shards) throws IOException {
+		awaitPendingSave();
+		if (shards < 1) {
+			throw new IllegalArgumentException("A platform is saved as at least one shard");
+		}
+		materialise();
+		ShardedSnapshot.write(filename, capture(), shards, journal != null, ForkJoinPool.commonPool());
+		changes.clear();
+		setBase(null, 0, 0); //delta segments are only appended to a single snapshot
+		if (journal != null) {
+			journal.truncate(journalSequence);
+		}
+	}
+
+	/**
+	 * Copies the platform into flat records that can be written while it carries on changing
+	 * @return the records of the platform, with the sequences and journal sequence it holds
+	 */
+	private PlatformSnapshot capture() {
+		finishAccountRemovals(); //a snapshot never holds the posts of a hidden account
+		PlatformSnapshot snapshot = PlatformSnapshot.capture(accounts);
+		snapshot.setLastIds(accountIds.getLast(), postIds.getLast()); //the sequences are saved so a loaded platform carries on from the same IDs
+		snapshot.setJournalSequence(journalSequence);
+		return snapshot;
+	}
+
+	/**
+	 * Writes captured records to a file as a single snapshot. They are written to a temporary file that is only
+	 * moved over the target once it is whole, so a save that fails leaves the previous snapshot as it was
+	 * @param filename location of the file to be written
+	 * @param snapshot the records to write
+	 * @param force true if the file has to be forced to the disk before returning
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void writeSnapshot(String filename, PlatformSnapshot snapshot, boolean force) throws IOException {
+		Path temporary = Path.of(filename + ".tmp");
+		try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+				SnapshotWriter writer = new SnapshotWriter(file)) {
+			writer.writeHeader(snapshot.getLastAccountId(), snapshot.getLastPostId(), snapshot.getJournalSequence());
+			writer.writeRecords(snapshot);
+			writer.finish();
+			if (force) {
+				file.getFD().sync();
+			}
+		}
+		Files.move(temporary, Path.of(filename), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Waits for the last background save to finish, so it is not overtaken by a save or load made after it.
+	 * Its failure is reported through the future it returned, not here. Anything that uses the base set by
+	 * setBase has to call this first, as the save may still be setting it
+	 */
+	private void awaitPendingSave() {
+		try {
+			pendingSave.join();
+		} catch (CompletionException e) {
+			//already reported to the caller of savePlatformAsync
+		}
+	}
+
+	@Override
+	public void savePlatformIncremental(String filename) throws IOException {
+		awaitPendingSave();
+		finishAccountRemovals();
+		Path target = Path.of(filename).toAbsolutePath().normalize();
+		if (changes.isFull() || !target.equals(snapshotBase) || deltaSegments >= MAX_DELTA_SEGMENTS
+				|| !Files.exists(target) || Files.size(target) != snapshotLength) {
+			savePlatform(filename); //there is no base to append to, or too many segments to keep appending
+			return;
+		}
+		if (!changes.isEmpty()) {
+			try (FileOutputStream file = new FileOutputStream(filename, true);
+					SnapshotWriter writer = new SnapshotWriter(file)) {
+				writer.writeDeltaHeader(accountIds.getLast(), postIds.getLast(), journalSequence);
+				for (Account account : changes.getAccounts()) {
+					if (accountIndex.get(account.getUniqueID()) == account) {
+						writer.writeAccount(account.getUniqueID(), account.getHandle(), account.getDescription());
+					} else {
+						writer.writeDeletedAccount(account.getUniqueID());
 					}
 				}
+				for (Post post : changes.getPosts()) {
+					if (post.getSequentialID() == 0 || postIndex.get(post.getSequentialID()) == post) {
+						writer.writePost(post); //new, or replaced by the generic empty post
+					} else {
+						writer.writeDeletedPost(post.getReferenceID());
+					}
+				}
+				writer.finish();
+				if (journal != null) {
+					file.getFD().sync();
+				}
 			}
+			changes.clear();
+			setBase(filename, Files.size(target), deltaSegments + 1);
 		}
+		if (journal != null) {
+			journal.truncate(journalSequence);
+		}
+	}
 
-		return false;
+	@Override
+	public void compactPlatform(String filename) throws IOException {
+		awaitPendingSave();
+		finishAccountRemovals();
+		Path target = Path.of(filename);
+		PlatformSnapshot snapshot;
+		try (InputStream in = new BufferedInputStream(new FileInputStream(filename))) {
+			if (!SnapshotReader.isSnapshot(in)) {
+				throw new IOException("Only binary snapshots can be compacted");
+			}
+			snapshot = new SnapshotReader(in).read();
+		}
+		if (snapshot.getSegmentCount() == 0 && snapshot.getLength() == Files.size(target)) {
+			return; //already a single snapshot
+		}
+		writeSnapshot(filename, snapshot, true); //the merged snapshot must be whole before it replaces the segments
+		if (target.toAbsolutePath().normalize().equals(snapshotBase)) {
+			setBase(filename, Files.size(target), 0);
+		}
+	}
+
+	/**
+	 * Records the snapshot file that incremental saves append to. A background save calls this from the snapshot
+	 * writer's thread without a lock, which is safe because every method that reads or writes the base calls
+	 * awaitPendingSave first, and joining the save's future orders its writes before anything done after it
+	 * @param filename location of the snapshot file, or null if there is none
+	 * @param length the length of the file
+	 * @param segments the number of delta segments that follow the snapshot in the file
+	 */
+	private void setBase(String filename, long length, int segments) {
+		snapshotBase = filename == null ? null : Path.of(filename).toAbsolutePath().normalize();
+		snapshotLength = length;
+		deltaSegments = segments;
 	}
 
 
+	@Override
+	public void loadPlatform(String filename) throws IOException, ClassNotFoundException {
+		awaitPendingSave();
+		finishAccountRemovals();
+		SocialMedia loaded = new SocialMedia(sharedIndex); //built apart so the platform is unchanged if loading fails
+		PlatformSnapshot snapshot = null;
+		try (InputStream in = new BufferedInputStream(new FileInputStream(filename))) {
+			if (SnapshotReader.isSnapshot(in)) {
+				snapshot = new SnapshotReader(in).read();
+				loaded.loadSnapshot(snapshot);
+			} else if (BlockSnapshot.isBlockSnapshot(in)) {
+				loaded.loadSnapshot(BlockSnapshot.read(in, ForkJoinPool.commonPool()));
+			} else if (ShardedSnapshot.isManifest(in)) {
+				loaded.loadSnapshot(ShardedSnapshot.read(filename, ForkJoinPool.commonPool()));
+			} else if (!loaded.loadSerialisedPlatform(in)) {
+				return;
+			}
+		}
+		if (journal != null) {
+			loaded.journalSequence = journal.replay(loaded.journalSequence, loaded::replay);
+		}
+		adopt(loaded);
+		finishAccountRemovals(); //accounts the journal hid but had not finished removing
+		if (snapshot == null) {
+			setBase(null, 0, 0); //incremental saves start with a full snapshot, also when loaded from blocks or shards
+		} else {
+			setBase(filename, snapshot.getLength(), snapshot.getSegmentCount());
+		}
+	}
+
+	@Override
+	public void loadPlatformMapped(String filename) throws IOException, ClassNotFoundException {
+		awaitPendingSave();
+		finishAccountRemovals();
+		MappedSnapshot snapshot = MappedSnapshot.open(filename);
+		if (snapshot == null || (journal != null && journal.getLastSequence() != snapshot.getJournalSequence())) {
+			loadPlatform(filename); //not a binary snapshot, or journal records have to be replayed on top of it
+			return;
+		}
+		accounts = new ArrayList<>();
+		rebuildIndexes();
+		accountIds.reset(snapshot.getLastAccountId());
+		postIds.reset(snapshot.getLastPostId());
+		journalSequence = snapshot.getJournalSequence();
+		changes = new PlatformChanges();
+		setBase(filename, Files.size(Path.of(filename)), 0);
+		mapped = snapshot;
+	}
+
+	@Override
+	public int exportPlatform(String filename) throws IOException {
+		materialise();
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename),
+				StandardCharsets.UTF_8), 1 << 16)) {
+			return LineFormat.write(capture(), out);
+		}
+	}
+
+	@Override
+	public int importPlatform(String filename) throws IOException {
+		materialise();
+		IntHashMap<Account> importedAccounts = new IntHashMap<>(); //the accounts made so far by their exported IDs
+		IntHashMap<Post> importedPosts = new IntHashMap<>(); //and the posts
+		ArrayList<Account> createdAccounts = new ArrayList<>(); //every account and post made, so a failed import can be undone
+		ArrayList<Post> created = new ArrayList<>();
+		int records = 0;
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(filename),
+				StandardCharsets.UTF_8), 1 << 16)) {
+			LineFormat.Parser parser = new LineFormat.Parser(in);
+			while (parser.next()) {
+				try {
+					switch (parser.getKind()) {
+						case LineFormat.ACCOUNT:
+							int accountId = createAccount(parser.getText(), parser.getDescription());
+							importedAccounts.put(parser.getId(), accountIndex.get(accountId));
+							createdAccounts.add(accountIndex.get(accountId));
+							break;
+						case LineFormat.POST:
+							int postId = createPost(importedAuthor(parser, importedAccounts).getHandle(), parser.getText());
+							importedPosts.put(parser.getId(), postIndex.get(postId));
+							created.add(postIndex.get(postId));
+							break;
+						case LineFormat.COMMENT: {
+							Account author = importedAuthor(parser, importedAccounts);
+							Post parent = importedParent(parser, importedPosts);
+							Post comment = parent.getSequentialID() == 0 //replies to the generic empty post have no ID to go by
+									? addComment(author, parent, parser.getText())
+									: postIndex.get(commentPost(author.getHandle(), parent.getSequentialID(), parser.getText()));
+							importedPosts.put(parser.getId(), comment);
+							created.add(comment);
+							break;
+						}
+						case LineFormat.ENDORSEMENT:
+							int endorsementId = endorsePost(importedAuthor(parser, importedAccounts).getHandle(),
+									importedParent(parser, importedPosts).getSequentialID());
+							importedPosts.put(parser.getId(), postIndex.get(endorsementId));
+							created.add(postIndex.get(endorsementId));
+							break;
+						default: {
+							Post post = attachRemovedPost(importedAccounts.get(parser.getAuthor()),
+									parser.getParent() == 0 ? null : importedParent(parser, importedPosts));
+							importedPosts.put(parser.getId(), post);
+							created.add(post);
+						}
+					}
+				} catch (IllegalHandleException | InvalidHandleException | InvalidPostException
+						| HandleNotRecognisedException | PostIDNotRecognisedException | NotActionablePostException e) {
+					throw parser.error("is rejected by the platform: " + e.getMessage());
+				}
+				records++;
+			}
+		} catch (IOException | RuntimeException e) {
+			undoImport(created, createdAccounts, e);
+			throw e;
+		}
+		return records;
+	}
+
 	/**
-	 * Checks if a post has any children or not
-	 * @param id takes an integer that identifies a Post by their unique ID
-	 * @return a boolean: true if it is an orphan and false if not.
+	 * Removes everything a failed import made, so the platform holds what it did before the import. The posts
+	 * are removed newest first, so none of them still has comments to leave behind under the generic empty post
+	 * @param created the posts made by the import, in the order they were made
+	 * @param createdAccounts the accounts made by the import
+	 * @param failure the exception the import failed with, to which anything that cannot be undone is added
 	 */
-	public boolean checkOrphan(int id) {
-		for (Account account : accounts) {
-			for (Post post : account.getAllPosts()) { //iterates through each accounts post
-				if (post.getSequentialID() == id) {
-					if (post.getComments().size() == 0) {//Checks to see if there are no comments on a post
-						return true;
+	private void undoImport(ArrayList<Post> created, ArrayList<Account> createdAccounts, Exception failure) {
+		for (int i = created.size() - 1; i >= 0; i--) {
+			Post post = created.get(i);
+			try {
+				if (post.getSequentialID() == 0) {
+					detachRemovedPost(post);
+					record(MutationJournal.DELETE_POST, 0, post.getReferenceID(), null, null);
+				} else {
+					deletePost(post.getSequentialID());
+				}
+			} catch (PostIDNotRecognisedException | RuntimeException e) {
+				failure.addSuppressed(e);
+			}
+		}
+		for (Account account : createdAccounts) {
+			try {
+				removeAccount(account.getUniqueID());
+			} catch (AccountIDNotRecognisedException | RuntimeException e) {
+				failure.addSuppressed(e);
+			}
+		}
+	}
+
+	private static Account importedAuthor(LineFormat.Parser parser, IntHashMap<Account> importedAccounts)
+			throws IOException {
+		Account author = importedAccounts.get(parser.getAuthor());
+		if (author == null) {
+			throw parser.error("refers to account " + parser.getAuthor() + ", which comes after it or is missing");
+		}
+		return author;
+	}
+
+	private static Post importedParent(LineFormat.Parser parser, IntHashMap<Post> importedPosts) throws IOException {
+		Post parent = importedPosts.get(parser.getParent());
+		if (parent == null) {
+			throw parser.error("refers to post " + parser.getParent() + ", which comes after it or is missing");
+		}
+		return parent;
+	}
+
+	/**
+	 * Attaches an imported post that was replaced by the generic empty post, in the state deletePost leaves it
+	 * in: it has a reference ID for replies to point at but no sequential ID, and it is not indexed or counted.
+	 * A removed original post is not one of its author's posts, while a removed comment still is
+	 * @param author the account that made the post, or null if that account was removed
+	 * @param parent the post it replied to, or null if it was an original post
+	 * @return the generic empty post
+	 * @throws InvalidHandleException never, the handle of the stand in for a removed account is valid
+	 * @throws InvalidPostException never, the generic empty message is valid
+	 */
+	private Post attachRemovedPost(Account author, Post parent) throws InvalidHandleException, InvalidPostException {
+		boolean removedAuthor = author == null;
+		if (removedAuthor) {
+			author = new Account("removed"); //renders as a deleted account, and is not added to the platform
+			author.makeAccountRedundant();
+		}
+		Post post;
+		if (parent == null) {
+			post = new Post(Post.REMOVED_MESSAGE);
+			post.setAccount(author);
+		} else {
+			Comment comment = new Comment(author, Post.REMOVED_MESSAGE, parent);
+			synchronized (parent.threadRoot()) {
+				parent.addToComments(comment);
+				comment.addedToThread();
+			}
+			author.addToAllPostsComment(comment);
+			post = comment;
+		}
+		post.setSequentialID(postIds.next()); //becomes its reference ID
+		post.setSequentialID(0);
+		invalidateViews(post);
+		changes.markPost(post);
+		record(MutationJournal.IMPORT_REMOVED_POST, post.getReferenceID(), parent == null ? 0 : parent.getReferenceID(),
+				removedAuthor ? null : author.getHandle(), null);
+		return post;
+	}
+
+	/**
+	 * Takes a generic empty post made by an import back off the platform, once its replies have been removed
+	 * @param post the generic empty post
+	 */
+	private void detachRemovedPost(Post post) {
+		if (post instanceof Comment) {
+			Post parent = ((Comment) post).getPost();
+			synchronized (parent.threadRoot()) {
+				parent.getComments().remove(post);
+				post.removedFromThread();
+			}
+			post.getAccount().removeUserPost(post);
+		}
+		invalidateViews(post);
+		changes.requireFull(); //a delta cannot tell a generic empty post taken off from one still there
+	}
+
+	/**
+	 * Builds the platform from the mapped snapshot it was loaded from, before anything is changed or
+	 * read that the snapshot cannot answer by itself. Does nothing once the platform is in memory
+	 */
+	void materialise() {
+		if (mapped == null) {
+			return;
+		}
+		synchronized (this) { //readers sharing a lock may materialise at the same time
+			MappedSnapshot snapshot = mapped;
+			if (snapshot == null) {
+				return;
+			}
+			try {
+				loadSnapshot(snapshot.read());
+			} catch (IOException e) {
+				throw new UncheckedIOException("Mapped snapshot could not be materialised", e);
+			}
+			mapped = null; //published only once the platform is built
+		}
+	}
+
+	/**
+	 * Checks whether the platform is still answered from the mapped snapshot it was loaded from
+	 * @return true if the snapshot has not been materialised yet, and false if the platform is in memory
+	 */
+	boolean isMapped() {
+		return mapped != null;
+	}
+
+	/**
+	 * Replaces the contents of the platform with the records of a snapshot
+	 * @param snapshot the records decoded from a binary snapshot
+	 * @throws IOException if the records cannot be linked, in which case the platform is unchanged
+	 */
+	private void loadSnapshot(PlatformSnapshot snapshot) throws IOException {
+		ArrayList<Account> restored = snapshot.toAccounts(); //linked before anything is replaced
+		accounts = restored;
+		rebuildIndexes();
+		accountIds.reset(Math.max(snapshot.getLastAccountId(), maxAccountId()));
+		postIds.reset(Math.max(snapshot.getLastPostId(), maxPostId()));
+		journalSequence = snapshot.getJournalSequence();
+		changes = new PlatformChanges();
+	}
+
+	/**
+	 * Takes over the contents of another platform, used once a platform has been loaded apart from this one
+	 * @param loaded the platform whose contents replace these
+	 */
+	private void adopt(SocialMedia loaded) {
+		accounts = loaded.accounts;
+		handles = loaded.handles;
+		accountIndex = loaded.accountIndex;
+		postIndex = loaded.postIndex;
+		totalOriginalPosts = loaded.totalOriginalPosts;
+		totalEndorsementPosts = loaded.totalEndorsementPosts;
+		totalCommentPosts = loaded.totalCommentPosts;
+		postRanking = loaded.postRanking;
+		accountRanking = loaded.accountRanking;
+		accountIds.reset(loaded.accountIds.getLast());
+		postIds.reset(loaded.postIds.getLast());
+		journalSequence = loaded.journalSequence;
+		changes = loaded.changes;
+		pendingRemovals.putAll(loaded.pendingRemovals);
+		hiddenHandles.addAll(loaded.hiddenHandles);
+		views.clear();
+		mapped = null;
+	}
+
+	@Override
+	public void openJournal(String filename) throws IOException {
+		awaitPendingSave(); //a background save may still empty the journal it was made with
+		finishAccountRemovals(); //the new journal could not replay the removal of an account hidden before it
+		MutationJournal opened = new MutationJournal(filename);
+		if (opened.getLastSequence() < journalSequence) {
+			opened.truncate(journalSequence); //an empty journal carries on from the records the platform holds
+		}
+		closeJournal();
+		journal = opened;
+	}
+
+	@Override
+	public void syncJournal() throws IOException {
+		if (journal != null) {
+			journal.sync();
+		}
+	}
+
+	@Override
+	public void closeJournal() throws IOException {
+		awaitPendingSave();
+		if (journal != null) {
+			MutationJournal closing = journal;
+			journal = null;
+			closing.close();
+		}
+	}
+
+	/**
+	 * Appends a change to the journal, if one is open
+	 * @param kind one of the record kinds of MutationJournal
+	 * @param id the ID the change created or the account removed, or 0
+	 * @param target the ID of the post the change refers to, or 0
+	 * @param handle the handle of the account that made the change, or null
+	 * @param text the message, description or new handle of the change, or null
+	 */
+	private void record(byte kind, int id, int target, String handle, String text) {
+		if (journal == null) {
+			return;
+		}
+		MutationJournal open = journal;
+		try {
+			synchronized (open) { //changes to different accounts are journaled at once, and the last sequence must win
+				journalSequence = open.append(kind, id, target, handle, text);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Change could not be journaled", e);
+		}
+	}
+
+	/**
+	 * Applies a journal record through the same methods that made the change, which is not journaled again
+	 * as a platform being loaded has no journal of its own. IDs are checked against the ones first allocated
+	 * @param change the journal record
+	 * @throws Exception if the change is rejected or does not allocate the same ID
+	 */
+	private void replay(MutationJournal.Record change) throws Exception {
+		int id;
+		int lastPostId = postIds.getLast(); //posts made from several threads may be journaled out of ID order
+		switch (change.getKind()) {
+			case MutationJournal.CREATE_ACCOUNT:
+				accountIds.reset(change.getId() - 1);
+				id = createAccount(change.getHandle(), change.getText());
+				break;
+			case MutationJournal.CHANGE_HANDLE:
+				changeAccountHandle(change.getHandle(), change.getText());
+				return;
+			case MutationJournal.UPDATE_DESCRIPTION:
+				updateAccountDescription(change.getHandle(), change.getText());
+				return;
+			case MutationJournal.CREATE_POST:
+				postIds.reset(change.getId() - 1);
+				id = createPost(change.getHandle(), change.getText());
+				break;
+			case MutationJournal.ENDORSE_POST:
+				postIds.reset(change.getId() - 1);
+				id = endorsePost(change.getHandle(), change.getTarget());
+				break;
+			case MutationJournal.COMMENT_POST: {
+				postIds.reset(change.getId() - 1);
+				Post standIn = replayedStandIns.get(change.getTarget());
+				if (standIn == null) {
+					id = commentPost(change.getHandle(), change.getTarget(), change.getText());
+				} else {
+					id = addComment(replayedAuthor(change), standIn, change.getText()).getSequentialID();
+				}
+				break;
+			}
+			case MutationJournal.DELETE_POST: {
+				Post standIn = replayedStandIns.remove(change.getTarget());
+				if (standIn == null) {
+					deletePost(change.getTarget());
+				} else {
+					detachRemovedPost(standIn);
+				}
+				return;
+			}
+			case MutationJournal.REMOVE_ACCOUNT:
+				removeAccount(change.getId());
+				return;
+			case MutationJournal.ERASE_PLATFORM:
+				erasePlatform();
+				return;
+			case MutationJournal.HIDE_ACCOUNT:
+				removeAccountAsync(change.getId());
+				return;
+			case MutationJournal.REMOVE_HIDDEN_ACCOUNT:
+				if (!finishAccountRemoval(change.getId())) {
+					throw new IOException("Journal record " + change.getSequence() + " refers to an account that was not hidden");
+				}
+				return;
+			case MutationJournal.IMPORT_REMOVED_POST: {
+				Account author = change.getHandle() == null ? null : replayedAuthor(change);
+				Post parent = null;
+				if (change.getTarget() != 0) {
+					parent = postIndex.get(change.getTarget());
+					if (parent == null) {
+						parent = replayedStandIns.get(change.getTarget());
+					}
+					if (parent == null) {
+						throw new IOException("Journal record " + change.getSequence() + " refers to a missing post");
 					}
 				}
+				postIds.reset(change.getId() - 1);
+				Post standIn = attachRemovedPost(author, parent);
+				replayedStandIns.put(standIn.getReferenceID(), standIn);
+				id = standIn.getReferenceID();
+				break;
+			}
+			default:
+				throw new IOException("Journal contains an unknown kind of record " + change.getKind());
+		}
+		if (id != change.getId()) {
+			throw new IOException("Journal record " + change.getSequence() + " allocated ID " + id
+					+ " instead of " + change.getId());
+		}
+		if (change.getKind() != MutationJournal.CREATE_ACCOUNT) {
+			postIds.reset(Math.max(lastPostId, id)); //so an ID journaled earlier is never handed out again
+		}
+	}
 
+	private Account replayedAuthor(MutationJournal.Record change) throws IOException {
+		Account author = handles.get(change.getHandle());
+		if (author == null) {
+			throw new IOException("Journal record " + change.getSequence() + " refers to a missing account");
+		}
+		return author;
+	}
+
+	/**
+	 * Loads a platform saved with Java serialisation, the format used before binary snapshots
+	 * @param in the stream positioned at the start of the serialised accounts
+	 * @return true if the stream held a platform, and false if it held something else and nothing was loaded
+	 * @throws IOException if there is a problem reading the stream
+	 * @throws ClassNotFoundException if required class files cannot be found when loading
+	 */
+	private boolean loadSerialisedPlatform(InputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream objects = new ObjectInputStream(in);
+		Object obj = objects.readObject();
+		if (obj instanceof ArrayList) {
+			int lastAccountId;
+			int lastPostId;
+			try {
+				lastAccountId = objects.readInt();
+				lastPostId = objects.readInt();
+			} catch (EOFException e) { //files saved before the sequences were stored
+				lastAccountId = -1;
+				lastPostId = -1;
 			}
+			@SuppressWarnings("unchecked") //savePlatform wrote the ArrayList of accounts
+			ArrayList<Account> restored = (ArrayList<Account>) obj;
+			accounts = restored;
+			rebuildIndexes();
+			accountIds.reset(Math.max(lastAccountId, maxAccountId()));
+			postIds.reset(Math.max(lastPostId, maxPostId()));
+			return true;
 		}
 		return false;
 	}
 
 	/**
-	 * This iterates through Accounts and Post to find an Account associated with a Post
-	 * @param id an integer that contains the unique ID of the post
-	 * @return an Account with that Post
+	 * Checks if the Handle given is unique
+	 * @param suggestedHandle a String that is suggested by an Account
+	 * @return true if the handle is Unique, and false if it is not unique
 	 */
-	public Account getAccountByPostId(int id) {
+	public boolean checkHandleUnique(String suggestedHandle) {
+		return !handles.containsKey(suggestedHandle);
+	}
+
+	/**
+	 * Checks whether a handle cannot be given to an account, as another account has it or had it when it was
+	 * hidden by removeAccountAsync and is still waiting to be removed
+	 * @param handle the handle being suggested
+	 * @return true if the handle is taken, and false if it is free
+	 */
+	private boolean handleTaken(String handle) {
+		return !checkHandleUnique(handle) || hiddenHandles.contains(handle);
+	}
+
+	/**
+	 * Gets the Account
+	 * @param handle a String that identifies an Account
+	 * @return an Account object with the same handle
+	 */
+	public Account getAccount(String handle) {
+		return handles.get(handle);
+	}
+
+	/**
+	 * Gets the Account
+	 * @param id an integer that identifies an Account
+	 * @return an Account object with the same unique ID, or null if there is none
+	 */
+	public Account getAccount(int id) {
+		return accountIndex.get(id);
+	}
+
+	/**
+	 * Rebuilds the lookup indexes from the ArrayList of accounts, used after the accounts have been replaced
+	 */
+	private void rebuildIndexes() {
+		handles = new HashMap<>(accounts.size() * 2);
+		accountIndex = new IntHashMap<>(accounts.size());
+		postIndex = newPostIndex();
+		totalOriginalPosts = new LongAdder();
+		totalEndorsementPosts = new LongAdder();
+		totalCommentPosts = new LongAdder();
+		postRanking.clear();
+		accountRanking.clear();
+		views.clear();
 		for (Account account : accounts) {
-			for (Post post : account.getAllPosts()) { //iterates through each accounts posts
-				if (post.getSequentialID() == id) {
-					return account;
+			handles.put(account.getHandle(), account);
+			accountIndex.put(account.getUniqueID(), account);
+			account.recountPosts();
+		}
+		for (Account account : accounts) { //indexed once every account is counted, as indexing reaches into others
+			for (Post post : account.getAllPosts()) {
+				if (post.getSequentialID() != 0) { //posts replaced by the generic empty post are not indexed
+					indexPost(post);
 				}
 			}
 		}
-		return null;
+		recountThreads();
 	}
 
-
 	/**
-	 * This method softly deletes (not hard deletion) of a comment of post with children and remove endorsements
-	 * @param id takes the ID of the post that gets deleted
+	 * Counts the thread below every original post again, used once the accounts have been replaced
 	 */
-	public void genWithChildren(int id) {
+	private void recountThreads() {
+		Set<Post> roots = Collections.newSetFromMap(new IdentityHashMap<>());
+		Set<Post> climbed = Collections.newSetFromMap(new IdentityHashMap<>()); //comments already walked up from
 		for (Account account : accounts) {
 			for (Post post : account.getAllPosts()) {
-				if (post.getSequentialID() == id) {
-					if (post instanceof Comment) { //checks whether post is a child
-						Comment change = (Comment) post;
-						//removes endorsements from ArrayList
-						for (Endorsement e : post.getEndorsements()) {
-							e.getAccount().getAllPosts().remove(e);
-						}
-						// endorsements ArrayList is cleared
-						post.getEndorsements().clear();
-						//Changes the message of a comment
-						change.setMessage("The original content was removed from the system and is no longer available.");
-						change.setSequentialID(0);
-					}
-					else {
-						for (Endorsement e : post.getEndorsements()) { //Iterates through the endorsements of a post one by one
-							e.getAccount().getAllPosts().remove(e);
-						}
-						//Makes post redundant
-						post.getEndorsements().clear();
-						post.setSequentialID(0);
-						post.setMessage("The original content was removed from the system and is no longer available.");
-						account.getAllPosts().remove(post); //Removes the post from the appropriate ArrayList
-						account.getPosts().remove(post); //Removes post from account arrayList
-						break;
-					}
+				Post top = post;
+				while (top instanceof Comment && climbed.add(top)) {
+					top = ((Comment) top).getPost(); //the comments above may belong to removed accounts
+				}
+				if (!(top instanceof Comment) && !(top instanceof Endorsement)) {
+					roots.add(top); //may be an original post that was deleted while it had comments
 				}
 			}
 		}
+		for (Post root : roots) {
+			root.recountThread();
+		}
 	}
-}
 
+	/**
+	 * Finds the highest account ID in the platform
+	 * @return the largest unique ID of any account, or 0 if there are none
+	 */
+	private int maxAccountId() {
+		int max = 0;
+		for (Account account : accounts) {
+			max = Math.max(max, account.getUniqueID());
+		}
+		return max;
+	}
+
+	/**
+	 * Finds the highest post ID in the platform
+	 * @return the largest sequential ID of any post in the index, or 0 if there are none
+	 */
+	private int maxPostId() {
+		int max = 0;
+		for (Account account : accounts) {
+			for (Post post : account.getAllPosts()) {
+				max = Math.max(max, post.getSequentialID());
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Adds a post to the post index and counts it in the platform totals
+	 * @param post the Post that has been added to the platform
+	 */
+	private void indexPost(Post post) {
+		postIndex.put(post.getSequentialID(), post);
+		invalidateViews(post);
+		if (post instanceof Endorsement) {
+			totalEndorsementPosts.increment();
+			rankEndorsement((Endorsement) post, 1);
+		} else if (post instanceof Comment) {
+			totalCommentPosts.increment();
+		} else {
+			totalOriginalPosts.increment();
+		}
+	}
+
+	/**
+	 * Removes a post from the post index and discounts it from the platform totals
+	 * @param post the Post that is being removed, while it still has its sequential ID
+	 */
+	private void unindexPost(Post post) {
+		if (postIndex.remove(post.getSequentialID()) == null) {
+			return;
+		}
+		changes.markPost(post); //deleted, or about to be replaced by the generic empty post
+		invalidateViews(post);
+		views.invalidate(ViewCache.postKey(post.getSequentialID()));
+		if (post instanceof Endorsement) {
+			totalEndorsementPosts.decrement();
+			rankEndorsement((Endorsement) post, -1);
+		} else if (post instanceof Comment) {
+			totalCommentPosts.decrement();
+		} else {
+			totalOriginalPosts.decrement();
+		}
+	}
+
+	/**
+	 * Drops the views a post being added or removed changes: the post count of its account, and the comment or
+	 * endorsement count of the post it replies to along with the endorsement count of that post's account
+	 * @param post the Post that is being added or removed
+	 */
+	private void invalidateViews(Post post) {
+		if (post.getAccount() != null) {
+			views.invalidate(ViewCache.accountKey(post.getAccount().getUniqueID()));
+		}
+		Post parent = post instanceof Endorsement ? ((Endorsement) post).getPost()
+				: post instanceof Comment ? ((Comment) post).getPost() : null;
+		if (parent != null) {
+			views.invalidate(ViewCache.postKey(parent.getSequentialID()));
+			if (parent.getAccount() != null) {
+				views.invalidate(ViewCache.accountKey(parent.getAccount().getUniqueID()));
+			}
+		}
+	}
+
+	/**
+	 * Updates the post and account rankings for an endorsement that has been added or removed
+	 * @param endorsement the Endorsement, whose endorsed post still has its sequential ID
+	 * @param delta 1 if the endorsement was added, -1 if it was removed
+	 */
+	private void rankEndorsement(Endorsement endorsement, int delta) {
+		Post endorsed = endorsement.getPost();
+		postRanking.adjust(endorsed.getSequentialID(), delta);
+		Account account = endorsed.getAccount();
+		if (account != null) {
+			if (pendingRemovals.isEmpty() || !pendingRemovals.containsKey(account.getUniqueID())) {
+				accountRanking.adjust(account.getUniqueID(), delta); //a hidden account has already left the ranking
+			}
+		}
+	}
+
+	/**
+	 * Checks whether the post ID matches a pre-exisitng Post in the system.
+	 * @param id the integer that identifies a Post
+	 * @return a boolean: true if found or false if not
+	 * @throws PostIDNotRecognisedException
+	 */
+	public boolean checkPostID(int id) throws PostIDNotRecognisedException {
+		if (id == 0){ //checks whether user has attemtped to input 0
+			throw new PostIDNotRecognisedException("Post Id not recognised");
+		}
+
+		return !postIndex.containsKey(id);
+	}
+
+	@Deprecated
+	public boolean checkNotEndorsement(int id) {
+		return postIndex.get(id) instanceof Endorsement;
+	}
+
+
+	/**
+	 * Checks if a post has any children or not
+	 * @param id takes an integer that identifies a Post by their unique ID
+	 * @return a boolean: true if it is an orphan and false if not.
+	 */
+	public boolean checkOrphan(int id) {
+		Post post = postIndex.get(id);
+		return post != null && post.getComments().size() == 0; //Checks to see if there are no comments on a post
+	}
+
+	/**
+	 * This looks up a Post by its unique ID and returns the Account associated with it
+	 * @param id an integer that contains the unique ID of the post
+	 * @return an Account with that Post
+	 */
+	public Account getAccountByPostId(int id) {
+		Post post = postIndex.get(id);
+		return post == null ? null : post.getAccount();
+	}
+
+
+	/**
+	 * This method softly deletes (not hard deletion) of a comment of post with children and remove endorsements
+	 * @param id takes the ID of the post that gets deleted
+	 */
+	public void genWithChildren(int id) {
+		Post post = postIndex.get(id);
+		if (post == null) {
+			return;
+		}
+		unindexPost(post);
+		//removes endorsements from ArrayList
+		for (Endorsement e : post.getEndorsements()) { //Iterates through the endorsements of a post one by one
+			e.getAccount().removeUserPost(e);
+			unindexPost(e);
+		}
+		// endorsements ArrayList is cleared
+		post.endorsementsChanged(-post.getEndorsements().size());
+		post.getEndorsements().clear();
+		//Changes the message of the post
+		post.setMessage(Post.REMOVED_MESSAGE);
+		post.setSequentialID(0);
+		if (!(post instanceof Comment)) { //checks whether post is a child
+			Account account = post.getAccount();
+			account.removeUserPost(post); //Removes the post from the appropriate ArrayLists
+		}
+	}
+}
@@ -0,0 +1,486 @@
+package socialmedia;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * SocialMediaBenchmark measures every method of the SocialMediaPlatform
+ * interface against a platform filled with a configurable number of accounts,
+ * posts per account and comment thread depth. For each benchmark it reports the
+ * average time per operation, the bytes allocated per operation and the number
+ * and duration of garbage collections, after a warm up phase.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * java socialmedia.SocialMediaBenchmark [impl=socialmedia|concurrent] [accounts=100,1000]
+ *     [posts=1,10] [depth=1,8] [warmup=5] [iterations=10] [batch=1000] [filter=name]
+ * </pre>
+ *
+ * Each list parameter is a comma separated list and every combination is run.
+ *
+ * @author Pierre Siddall and Priya Shah
+ * @version 1.0
+ */
+
+public class SocialMediaBenchmark {
+	private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+	private static final int SHARDS = Runtime.getRuntime().availableProcessors(); //one shard per core
+
+	private final Supplier<SocialMediaPlatform> factory;
+	private final int warmupIterations;
+	private final int measuredIterations;
+	private final int batch;
+	private final String filter;
+	private final List<Benchmark> benchmarks = new ArrayList<>();
+
+	/**
+	 * A platform filled with accounts, posts and comment threads, together with the IDs that were created
+	 */
+	private static class Fixture {
+		private final SocialMediaPlatform platform;
+		private final String[] handles;
+		private final int[] accountIds;
+		private final int[] postIds; //every original post
+		private final int[] leafIds; //the deepest comment of each thread
+		private int next = 0; //a counter used to generate unique handles and to cycle through the IDs
+		private final StringBuilder out = new StringBuilder(); //reused by the benchmarks that write into an Appendable
+
+		private Fixture(SocialMediaPlatform platform, int accounts, int postsPerAccount, int depth) throws Exception {
+			this.platform = platform;
+			handles = new String[accounts];
+			accountIds = new int[accounts];
+			postIds = new int[accounts * postsPerAccount];
+			leafIds = new int[accounts];
+			for (int i = 0; i < accounts; i++) {
+				handles[i] = "user" + i;
+				accountIds[i] = platform.createAccount(handles[i], "description of user " + i);
+			}
+			int p = 0;
+			for (int i = 0; i < accounts; i++) {
+				for (int j = 0; j < postsPerAccount; j++) {
+					postIds[p++] = platform.createPost(handles[i], "post " + j + " of user " + i);
+				}
+			}
+			for (int i = 0; i < accounts; i++) { //one comment thread per account, under its first post
+				int parent = postIds[i * postsPerAccount];
+				for (int d = 0; d < depth; d++) {
+					parent = platform.commentPost(handles[(i + d + 1) % accounts], parent, "reply at depth " + (d + 1));
+				}
+				leafIds[i] = parent;
+				platform.endorsePost(handles[(i + 1) % accounts], postIds[i * postsPerAccount]);
+			}
+		}
+
+		private String handle() {
+			return handles[next++ % handles.length];
+		}
+
+		private int post() {
+			return postIds[next++ % postIds.length];
+		}
+	}
+
+	/**
+	 * One operation of the interface that is timed in batches
+	 */
+	private interface Operation {
+		void run(Fixture fixture, int i) throws Exception;
+	}
+
+	/**
+	 * The number of operations a fresh fixture can take before the state it runs against is used up
+	 */
+	private interface Capacity {
+		int of(int accounts, int postsPerAccount);
+	}
+
+	/**
+	 * A named operation, which either shares one fixture across iterations or, when it has a capacity,
+	 * needs a fresh fixture before each iteration because it consumes the state it runs against
+	 */
+	private static class Benchmark {
+		private final String name;
+		private final Capacity capacity;
+		private final Operation operation;
+
+		private Benchmark(String name, Capacity capacity, Operation operation) {
+			this.name = name;
+			this.capacity = capacity;
+			this.operation = operation;
+		}
+	}
+
+	/**
+	 * Constructor for a benchmark run
+	 * @param factory creates the empty platforms that are measured
+	 * @param warmupIterations the number of iterations run before measuring
+	 * @param measuredIterations the number of iterations that are measured
+	 * @param batch the number of operations in one iteration
+	 * @param filter only benchmarks whose name contains this String are run, or all if it is empty
+	 */
+	public SocialMediaBenchmark(Supplier<SocialMediaPlatform> factory, int warmupIterations, int measuredIterations,
+			int batch, String filter) {
+		this.factory = factory;
+		this.warmupIterations = warmupIterations;
+		this.measuredIterations = measuredIterations;
+		this.batch = batch;
+		this.filter = filter;
+		defineBenchmarks();
+	}
+
+	private void defineBenchmarks() {
+		benchmarks.add(new Benchmark("createAccount", null, (f, i) -> f.platform.createAccount("new" + f.next++)));
+		benchmarks.add(new Benchmark("createAccountWithDescription", null,
+				(f, i) -> f.platform.createAccount("new" + f.next++, "a description")));
+		benchmarks.add(new Benchmark("removeAccountById", (a, p) -> a,
+				(f, i) -> f.platform.removeAccount(f.accountIds[i % f.accountIds.length])));
+		benchmarks.add(new Benchmark("removeAccountByHandle", (a, p) -> a,
+				(f, i) -> f.platform.removeAccount(f.handles[i % f.handles.length])));
+		benchmarks.add(new Benchmark("removeAccountAsync", (a, p) -> a, //only the hiding, the posts are removed later
+				(f, i) -> f.platform.removeAccountAsync(f.accountIds[i % f.accountIds.length])));
+		benchmarks.add(new Benchmark("finishAccountRemovals", (a, p) -> a, //hides one account and finishes removing it
+				(f, i) -> {
+					f.platform.removeAccountAsync(f.accountIds[i % f.accountIds.length]);
+					f.platform.finishAccountRemovals();
+				}));
+		benchmarks.add(new Benchmark("changeAccountHandle", (a, p) -> a,
+				(f, i) -> f.platform.changeAccountHandle(f.handles[i % f.handles.length], "renamed" + i)));
+		benchmarks.add(new Benchmark("updateAccountDescription", null,
+				(f, i) -> f.platform.updateAccountDescription(f.handle(), "updated description " + i)));
+		benchmarks.add(new Benchmark("showAccountByHandle", null, (f, i) -> f.platform.showAccount(f.handle())));
+		benchmarks.add(new Benchmark("showAccountById", null,
+				(f, i) -> f.platform.showAccount(f.accountIds[i % f.accountIds.length])));
+		benchmarks.add(new Benchmark("createPost", null, (f, i) -> f.platform.createPost(f.handle(), "a new post")));
+		benchmarks.add(new Benchmark("endorsePost", null, (f, i) -> f.platform.endorsePost(f.handle(), f.post())));
+		benchmarks.add(new Benchmark("commentPost", null,
+				(f, i) -> f.platform.commentPost(f.handle(), f.post(), "a new comment")));
+		benchmarks.add(new Benchmark("createAccounts(100)", null, (f, i) -> {
+			String[] handles = new String[100];
+			String[] descriptions = new String[100];
+			for (int k = 0; k < handles.length; k++) {
+				handles[k] = "new" + f.next++;
+				descriptions[k] = "a description";
+			}
+			f.platform.createAccounts(handles, descriptions);
+		}));
+		benchmarks.add(new Benchmark("createPosts(100)", null, (f, i) -> {
+			String[] authors = new String[100];
+			String[] messages = new String[100];
+			for (int k = 0; k < authors.length; k++) {
+				authors[k] = f.handle();
+				messages[k] = "a new post";
+			}
+			f.platform.createPosts(authors, messages);
+		}));
+		benchmarks.add(new Benchmark("endorsePosts(100)", null, (f, i) -> {
+			String[] endorsers = new String[100];
+			int[] posts = new int[100];
+			for (int k = 0; k < endorsers.length; k++) {
+				endorsers[k] = f.handle();
+				posts[k] = f.post();
+			}
+			f.platform.endorsePosts(endorsers, posts);
+		}));
+		benchmarks.add(new Benchmark("commentPosts(100)", null, (f, i) -> {
+			String[] commenters = new String[100];
+			int[] posts = new int[100];
+			String[] messages = new String[100];
+			for (int k = 0; k < commenters.length; k++) {
+				commenters[k] = f.handle();
+				posts[k] = f.post();
+				messages[k] = "a new comment";
+			}
+			f.platform.commentPosts(commenters, posts, messages);
+		}));
+		benchmarks.add(new Benchmark("deletePost", (a, p) -> a * p, (f, i) -> f.platform.deletePost(f.postIds[i % f.postIds.length])));
+		benchmarks.add(new Benchmark("showIndividualPost", null, (f, i) -> f.platform.showIndividualPost(f.post())));
+		benchmarks.add(new Benchmark("showIndividualPostUncached", null, (f, i) -> {
+			if (i == 0) {
+				f.platform.setViewCacheCapacity(0); //every read renders the post, as before views were cached
+			}
+			f.platform.showIndividualPost(f.post());
+		}));
+		benchmarks.add(new Benchmark("showPostChildrenDetails", null,
+				(f, i) -> f.platform.showPostChildrenDetails(f.postIds[i % f.postIds.length])));
+		benchmarks.add(new Benchmark("showPostChildrenDetails(out)", null, (f, i) -> {
+			f.out.setLength(0);
+			f.platform.showPostChildrenDetails(f.postIds[i % f.postIds.length], f.out);
+		}));
+		benchmarks.add(new Benchmark("showPostChildrenPage(100)", null,
+				(f, i) -> f.platform.showPostChildrenPage(f.postIds[i % f.postIds.length], null, 100)));
+		benchmarks.add(new Benchmark("setViewCacheCapacity", null,
+				(f, i) -> f.platform.setViewCacheCapacity(i % 2 == 0 ? 64 : 4096))); //evicts down to 64 views every other call
+		benchmarks.add(new Benchmark("getViewCacheHits", null, (f, i) -> f.platform.getViewCacheHits()));
+		benchmarks.add(new Benchmark("getViewCacheMisses", null, (f, i) -> f.platform.getViewCacheMisses()));
+		benchmarks.add(new Benchmark("getViewCacheEvictions", null, (f, i) -> f.platform.getViewCacheEvictions()));
+		benchmarks.add(new Benchmark("getNumberOfAccounts", null, (f, i) -> f.platform.getNumberOfAccounts()));
+		benchmarks.add(new Benchmark("getTotalOriginalPosts", null, (f, i) -> f.platform.getTotalOriginalPosts()));
+		benchmarks.add(new Benchmark("getTotalEndorsmentPosts", null, (f, i) -> f.platform.getTotalEndorsmentPosts()));
+		benchmarks.add(new Benchmark("getTotalCommentPosts", null, (f, i) -> f.platform.getTotalCommentPosts()));
+		benchmarks.add(new Benchmark("getMostEndorsedPost", null, (f, i) -> f.platform.getMostEndorsedPost()));
+		benchmarks.add(new Benchmark("getMostEndorsedAccount", null, (f, i) -> f.platform.getMostEndorsedAccount()));
+		benchmarks.add(new Benchmark("getMostEndorsedPosts", null, (f, i) -> f.platform.getMostEndorsedPosts(10)));
+		benchmarks.add(new Benchmark("getMostEndorsedAccounts", null, (f, i) -> f.platform.getMostEndorsedAccounts(10)));
+		benchmarks.add(new Benchmark("getThreadCommentCount", null,
+				(f, i) -> f.platform.getThreadCommentCount(f.postIds[i % f.postIds.length])));
+		benchmarks.add(new Benchmark("getThreadDepth", null,
+				(f, i) -> f.platform.getThreadDepth(f.postIds[i % f.postIds.length])));
+		benchmarks.add(new Benchmark("getThreadEndorsementCount", null,
+				(f, i) -> f.platform.getThreadEndorsementCount(f.postIds[i % f.postIds.length])));
+		benchmarks.add(new Benchmark("erasePlatform", (a, p) -> 1, (f, i) -> f.platform.erasePlatform()));
+		benchmarks.add(new Benchmark("savePlatform", null, (f, i) -> f.platform.savePlatform(snapshotFile())));
+		benchmarks.add(new Benchmark("savePlatformAsyncPause", (a, p) -> 4, //only the copy made before it returns, during which changes wait
+				(f, i) -> f.platform.savePlatformAsync(snapshotFile())));
+		benchmarks.add(new Benchmark("savePlatformAsync", null, (f, i) -> f.platform.savePlatformAsync(snapshotFile()).join()));
+		benchmarks.add(new Benchmark("savePlatformIncremental", null, (f, i) -> { //appends the one post made since the last save
+			if (i == 0) {
+				f.platform.savePlatform(snapshotFile());
+			}
+			f.platform.createPost(f.handle(), "a new post");
+			f.platform.savePlatformIncremental(snapshotFile());
+		}));
+		benchmarks.add(new Benchmark("compactPlatform", null, (f, i) -> { //merges the delta segment of one post back in
+			if (i == 0) {
+				f.platform.savePlatform(snapshotFile());
+			}
+			f.platform.createPost(f.handle(), "a new post");
+			f.platform.savePlatformIncremental(snapshotFile());
+			f.platform.compactPlatform(snapshotFile());
+		}));
+		benchmarks.add(new Benchmark("loadPlatform", null, (f, i) -> {
+			if (i == 0) {
+				f.platform.savePlatform(snapshotFile());
+			}
+			f.platform.loadPlatform(snapshotFile());
+		}));
+		benchmarks.add(new Benchmark("loadPlatformMapped", null, (f, i) -> {
+			if (i == 0) {
+				f.platform.savePlatform(snapshotFile());
+			}
+			f.platform.loadPlatformMapped(snapshotFile());
+			f.platform.showIndividualPost(f.post()); //the first read after loading
+		}));
+		benchmarks.add(new Benchmark("savePlatformCompressed", null,
+				(f, i) -> f.platform.savePlatformCompressed(snapshotFile(), BlockSnapshot.CODEC_DEFLATE)));
+		benchmarks.add(new Benchmark("loadPlatformCompressed", null, (f, i) -> {
+			if (i == 0) {
+				f.platform.savePlatformCompressed(snapshotFile(), BlockSnapshot.CODEC_DEFLATE);
+			}
+			f.platform.loadPlatform(snapshotFile());
+		}));
+		benchmarks.add(new Benchmark("savePlatformSharded", null,
+				(f, i) -> f.platform.savePlatformSharded(snapshotFile(), SHARDS)));
+		benchmarks.add(new Benchmark("loadPlatformSharded", null, (f, i) -> {
+			if (i == 0) {
+				f.platform.savePlatformSharded(snapshotFile(), SHARDS);
+			}
+			f.platform.loadPlatform(snapshotFile());
+		}));
+		benchmarks.add(new Benchmark("exportPlatform", null, (f, i) -> f.platform.exportPlatform(exportFile())));
+		benchmarks.add(new Benchmark("importPlatform", null, (f, i) -> { //into an empty platform, as the handles are taken
+			if (i == 0) {
+				f.platform.exportPlatform(exportFile());
+			}
+			factory.get().importPlatform(exportFile());
+		}));
+		benchmarks.add(new Benchmark("openJournal+closeJournal", null, (f, i) -> {
+			f.platform.openJournal(journalFile());
+			f.platform.closeJournal();
+		}));
+		benchmarks.add(new Benchmark("syncJournal", null, (f, i) -> { //forces the one post made since the last sync
+			if (i == 0) {
+				f.platform.openJournal(journalFile());
+			}
+			f.platform.createPost(f.handle(), "a new post");
+			f.platform.syncJournal();
+		}));
+	}
+
+	/**
+	 * Runs every benchmark for one combination of parameters and prints a line of results for each
+	 * @param accounts the number of accounts in the platform
+	 * @param postsPerAccount the number of original posts made by each account
+	 * @param depth the number of nested comments under the first post of each account
+	 */
+	public void run(int accounts, int postsPerAccount, int depth) {
+		for (Benchmark benchmark : benchmarks) {
+			if (!benchmark.name.contains(filter)) {
+				continue;
+			}
+			//operations that consume the fixture cannot run more times than there are things to consume
+			int operations = benchmark.capacity == null ? batch
+					: Math.max(1, Math.min(batch, benchmark.capacity.of(accounts, postsPerAccount)));
+			long[] totals = new long[4]; //nanoseconds, bytes allocated, collections, collection time
+			try {
+				Fixture fixture = new Fixture(factory.get(), accounts, postsPerAccount, depth);
+				for (int w = 0; w < warmupIterations; w++) {
+					fixture = iterate(benchmark, fixture, operations, accounts, postsPerAccount, depth, null);
+				}
+				for (int m = 0; m < measuredIterations; m++) {
+					fixture = iterate(benchmark, fixture, operations, accounts, postsPerAccount, depth, totals);
+				}
+			} catch (Exception | StackOverflowError e) { //reported as a result so one failing method does not stop the run
+				System.out.println(String.format(Locale.ROOT, "%-30s %8d %6d %6d failed: %s",
+						benchmark.name, accounts, postsPerAccount, depth, e));
+				continue;
+			}
+			long count = (long) operations * measuredIterations;
+			System.out.println(String.format(Locale.ROOT, "%-30s %8d %6d %6d %14.1f %12.1f %6d %8d",
+					benchmark.name, accounts, postsPerAccount, depth, (double) totals[0] / count,
+					totals[1] < 0 ? Double.NaN : (double) totals[1] / count, totals[2], totals[3]));
+		}
+		File snapshot = new File(snapshotFile());
+		snapshot.delete();
+		new File(exportFile()).delete();
+		new File(journalFile()).delete();
+		File[] shards = snapshot.getParentFile().listFiles((directory, name) ->
+				name.startsWith(snapshot.getName() + ".g") && name.contains(".shard")); //of whichever generation was saved last
+		for (File shard : shards == null ? new File[0] : shards) {
+			shard.delete();
+		}
+	}
+
+	/**
+	 * Runs one iteration of a benchmark, rebuilding the fixture first when the benchmark consumes it
+	 * @param totals the array the measurements are added to, or null for a warm up iteration
+	 * @return the fixture to use for the next iteration
+	 */
+	private Fixture iterate(Benchmark benchmark, Fixture fixture, int operations, int accounts, int postsPerAccount,
+			int depth, long[] totals) throws Exception {
+		if (benchmark.capacity != null) {
+			fixture = new Fixture(factory.get(), accounts, postsPerAccount, depth);
+		}
+		long gcCount = gcCount();
+		long gcTime = gcTime();
+		long allocated = allocatedBytes();
+		long start = System.nanoTime();
+		for (int i = 0; i < operations; i++) {
+			benchmark.operation.run(fixture, i);
+		}
+		long elapsed = System.nanoTime() - start;
+		long allocatedAfter = allocatedBytes();
+		if (totals != null) {
+			totals[0] += elapsed;
+			totals[1] = allocated < 0 || totals[1] < 0 ? -1 : totals[1] + allocatedAfter - allocated;
+			totals[2] += gcCount() - gcCount;
+			totals[3] += gcTime() - gcTime;
+		}
+		return fixture;
+	}
+
+	private static String snapshotFile() {
+		return System.getProperty("java.io.tmpdir") + File.separator + "socialmedia-benchmark.ser";
+	}
+
+	private static String exportFile() {
+		return System.getProperty("java.io.tmpdir") + File.separator + "socialmedia-benchmark.txt";
+	}
+
+	private static String journalFile() {
+		return System.getProperty("java.io.tmpdir") + File.separator + "socialmedia-benchmark.journal";
+	}
+
+	private static com.sun.management.ThreadMXBean allocationBean() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+			if (threads.isThreadAllocatedMemorySupported()) {
+				threads.setThreadAllocatedMemoryEnabled(true);
+				return threads;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the bytes allocated so far by the current thread
+	 * @return the number of bytes, or -1 if the JVM does not report allocations
+	 */
+	private static long allocatedBytes() {
+		return THREADS == null ? -1 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, gc.getCollectionCount());
+		}
+		return count;
+	}
+
+	private static long gcTime() {
+		long time = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			time += Math.max(0, gc.getCollectionTime());
+		}
+		return time;
+	}
+
+	private static int[] parseList(String value) {
+		String[] parts = value.split(",");
+		int[] values = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			values[i] = Integer.parseInt(parts[i].trim());
+		}
+		return values;
+	}
+
+	/**
+	 * Runs the benchmarks for every combination of the parameters given as key=value arguments
+	 * @param args the parameters described in the class comment
+	 * @throws Exception when a benchmark fails
+	 */
+	public static void main(String[] args) throws Exception {
+		String impl = "socialmedia";
+		int[] accounts = {100, 1000};
+		int[] posts = {1, 10};
+		int[] depths = {1, 8};
+		int warmup = 5;
+		int iterations = 10;
+		int batch = 1000;
+		String filter = "";
+		for (String arg : args) {
+			int split = arg.indexOf('=');
+			if (split < 0) {
+				throw new IllegalArgumentException("Arguments must be key=value: " + arg);
+			}
+			String key = arg.substring(0, split);
+			String value = arg.substring(split + 1);
+			switch (key) {
+				case "impl": impl = value; break;
+				case "accounts": accounts = parseList(value); break;
+				case "posts": posts = parseList(value); break;
+				case "depth": depths = parseList(value); break;
+				case "warmup": warmup = Integer.parseInt(value); break;
+				case "iterations": iterations = Integer.parseInt(value); break;
+				case "batch": batch = Integer.parseInt(value); break;
+				case "filter": filter = value; break;
+				default: throw new IllegalArgumentException("Unknown argument: " + key);
+			}
+		}
+		Supplier<SocialMediaPlatform> factory;
+		if (impl.equals("concurrent")) {
+			factory = ConcurrentSocialMedia::new;
+		} else if (impl.equals("socialmedia")) {
+			factory = SocialMedia::new;
+		} else {
+			throw new IllegalArgumentException("Unknown implementation: " + impl);
+		}
+		SocialMediaBenchmark benchmark = new SocialMediaBenchmark(factory, warmup, iterations, batch, filter);
+		System.out.println(String.format(Locale.ROOT, "%-30s %8s %6s %6s %14s %12s %6s %8s",
+				"benchmark", "accounts", "posts", "depth", "ns/op", "B/op", "gcs", "gc ms"));
+		for (int a : accounts) {
+			for (int p : posts) {
+				for (int d : depths) {
+					benchmark.run(a, p, d);
+				}
+			}
+		}
+	}
+}
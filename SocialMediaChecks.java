@@ -0,0 +1,468 @@
+package socialmedia;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SocialMediaChecks runs repeatable checks of platform behaviour that is easy
+ * to break and hard to see from the outside, such as paging through a thread
+ * that changes between pages. Each check builds its own platform, and a check
+ * that fails reports what it expected and what it found.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * java socialmedia.SocialMediaChecks [filter=name]
+ * </pre>
+ *
+ * The program exits with status 1 if any check fails.
+ *
+ * @author Pierre Siddall and Priya Shah
+ * @version 1.0
+ */
+
+public class SocialMediaChecks {
+	private final List<Check> checks = new ArrayList<>();
+	private static Path scratch; //the directory of the files checks write, made by the first one
+
+	/**
+	 * The steps of a check, which throw if the platform does not behave as expected
+	 */
+	private interface Body {
+		void run() throws Exception;
+	}
+
+	/**
+	 * A check together with the name it is reported and filtered by
+	 */
+	private static class Check {
+		private final String name;
+		private final Body body;
+
+		private Check(String name, Body body) {
+			this.name = name;
+			this.body = body;
+		}
+	}
+
+	/**
+	 * Constructor registering every check
+	 */
+	private SocialMediaChecks() {
+		add("pageResumesAfterDeletedComment", SocialMediaChecks::pageResumesAfterDeletedComment);
+		add("pageResumesAfterReplacedComment", SocialMediaChecks::pageResumesAfterReplacedComment);
+		add("hiddenAccountPostsCannotBeFound", SocialMediaChecks::hiddenAccountPostsCannotBeFound);
+		add("hiddenAccountKeepsItsHandle", SocialMediaChecks::hiddenAccountKeepsItsHandle);
+		add("importKeepsRemovedPosts", SocialMediaChecks::importKeepsRemovedPosts);
+		add("importIsReplayedFromJournal", SocialMediaChecks::importIsReplayedFromJournal);
+		add("failedImportLeavesPlatformUnchanged", SocialMediaChecks::failedImportLeavesPlatformUnchanged);
+		add("concurrentPostsGetDistinctIds", SocialMediaChecks::concurrentPostsGetDistinctIds);
+	}
+
+	private void add(String name, Body body) {
+		checks.add(new Check(name, body));
+	}
+
+	/**
+	 * Runs the checks whose names contain the filter
+	 * @param filter part of a check name, or an empty String to run every check
+	 * @return the number of checks that failed
+	 */
+	private int run(String filter) {
+		int failed = 0;
+		for (Check check : checks) {
+			if (!check.name.contains(filter)) {
+				continue;
+			}
+			try {
+				check.body.run();
+				System.out.println("ok     " + check.name);
+			} catch (Exception | AssertionError e) {
+				failed++;
+				System.out.println("FAILED " + check.name + ": " + e);
+			}
+		}
+		return failed;
+	}
+
+	/**
+	 * Fails a check unless two values are equal
+	 * @param expected the value the platform should give
+	 * @param actual the value it gave
+	 * @param what a description of the value
+	 */
+	private static void expect(Object expected, Object actual, String what) {
+		boolean equal = expected instanceof int[] && actual instanceof int[]
+				? Arrays.equals((int[]) expected, (int[]) actual)
+				: expected == null ? actual == null : expected.equals(actual);
+		if (!equal) {
+			throw new AssertionError(what + ": expected " + describe(expected) + " but was " + describe(actual));
+		}
+	}
+
+	private static String describe(Object value) {
+		return value instanceof int[] ? Arrays.toString((int[]) value) : String.valueOf(value);
+	}
+
+	/**
+	 * Gets the IDs of the comments on a page
+	 * @param page the page
+	 * @return the ID of each comment, in the order of the page
+	 */
+	private static int[] ids(CommentPage page) {
+		int[] ids = new int[page.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = page.getId(i);
+		}
+		return ids;
+	}
+
+	/**
+	 * A comment that was the last one on a page and is then deleted outright is not read again, and the page
+	 * after it starts from the comment that moved into its place
+	 */
+	private static void pageResumesAfterDeletedComment() throws Exception {
+		SocialMedia platform = new SocialMedia();
+		platform.createAccount("alice");
+		platform.createAccount("bob");
+		int root = platform.createPost("alice", "root");
+		int first = platform.commentPost("bob", root, "first");
+		int second = platform.commentPost("bob", root, "second");
+		CommentPage page = platform.showPostChildrenPage(root, null, 1);
+		expect(new int[] {first}, ids(page), "first page");
+		platform.deletePost(first);
+		page = platform.showPostChildrenPage(root, page.getNextCursor(), 10);
+		expect(new int[] {second}, ids(page), "page after the deletion");
+		expect(false, page.hasMore(), "more pages");
+	}
+
+	/**
+	 * A comment that was the last one on a page and is then replaced by the generic empty post, as it has
+	 * replies, is not read again: the next page carries on with its replies and then the comments after it
+	 */
+	private static void pageResumesAfterReplacedComment() throws Exception {
+		SocialMedia platform = new SocialMedia();
+		platform.createAccount("alice");
+		platform.createAccount("bob");
+		int root = platform.createPost("alice", "root");
+		int replaced = platform.commentPost("bob", root, "replaced");
+		int reply = platform.commentPost("alice", replaced, "reply");
+		int after = platform.commentPost("bob", root, "after");
+		CommentPage page = platform.showPostChildrenPage(root, null, 1);
+		expect(new int[] {replaced}, ids(page), "first page");
+		platform.deletePost(replaced);
+		page = platform.showPostChildrenPage(root, page.getNextCursor(), 10);
+		expect(new int[] {reply, after}, ids(page), "page after the replacement");
+		expect(2, page.getDepth(0), "depth of the reply");
+		expect(false, page.hasMore(), "more pages");
+	}
+
+	/**
+	 * Fails a check unless a step throws the expected exception
+	 * @param expected the class of the exception
+	 * @param step the step that should throw it
+	 * @param what a description of the step
+	 */
+	private static void expectThrows(Class<? extends Exception> expected, Body step, String what) {
+		try {
+			step.run();
+		} catch (Exception e) {
+			if (expected.isInstance(e)) {
+				return;
+			}
+			throw new AssertionError(what + ": expected " + expected.getSimpleName() + " but threw " + e);
+		}
+		throw new AssertionError(what + ": expected " + expected.getSimpleName() + " but nothing was thrown");
+	}
+
+	/**
+	 * An account hidden by removeAccountAsync takes its posts with it at once, before finishAccountRemovals
+	 * runs: they cannot be shown, endorsed or commented on, and they leave the totals and the rankings, as do
+	 * the endorsements it made of other posts
+	 */
+	private static void hiddenAccountPostsCannotBeFound() throws Exception {
+		SocialMedia platform = new SocialMedia();
+		int alice = platform.createAccount("alice");
+		platform.createAccount("bob");
+		int post = platform.createPost("alice", "hello");
+		int other = platform.createPost("bob", "hi");
+		platform.endorsePost("bob", post);
+		platform.endorsePost("bob", post);
+		platform.endorsePost("alice", other);
+		expect(post, platform.getMostEndorsedPost(), "most endorsed post before hiding");
+		platform.removeAccountAsync(alice);
+		expectThrows(PostIDNotRecognisedException.class, () -> platform.showIndividualPost(post), "showing the post");
+		expectThrows(PostIDNotRecognisedException.class, () -> platform.endorsePost("bob", post), "endorsing the post");
+		expectThrows(PostIDNotRecognisedException.class, () -> platform.commentPost("bob", post, "reply"),
+				"commenting on the post");
+		expect(1, platform.getTotalOriginalPosts(), "original posts");
+		expect(0, platform.getTotalEndorsmentPosts(), "endorsements");
+		expect(0, platform.getMostEndorsedPost(), "most endorsed post");
+		platform.finishAccountRemovals();
+		expect(1, platform.getTotalOriginalPosts(), "original posts once removed");
+		expect(0, platform.getTotalEndorsmentPosts(), "endorsements once removed");
+	}
+
+	/**
+	 * The handle of an account hidden by removeAccountAsync cannot be taken until its posts are removed, so a
+	 * new account never looks like the author of the hidden posts
+	 */
+	private static void hiddenAccountKeepsItsHandle() throws Exception {
+		SocialMedia platform = new SocialMedia();
+		int alice = platform.createAccount("alice");
+		platform.createAccount("bob");
+		platform.createPost("alice", "hello");
+		platform.removeAccountAsync(alice);
+		expectThrows(HandleNotRecognisedException.class, () -> platform.showAccount("alice"), "showing the account");
+		expectThrows(IllegalHandleException.class, () -> platform.createAccount("alice"), "taking the handle");
+		expectThrows(IllegalHandleException.class, () -> platform.changeAccountHandle("bob", "alice"),
+				"changing to the handle");
+		platform.finishAccountRemovals();
+		int again = platform.createAccount("alice");
+		expect(true, platform.showAccount(again).contains("Post count: 0"), "posts of the new account");
+	}
+
+	/**
+	 * Gets a file for a check to write, which is deleted when the checks end
+	 * @param name the name of the file, which no other check uses
+	 * @return the path of the file
+	 * @throws IOException if the scratch directory cannot be made
+	 */
+	private static Path scratch(String name) throws IOException {
+		if (scratch == null) {
+			scratch = Files.createTempDirectory("socialmedia-checks");
+			scratch.toFile().deleteOnExit();
+		}
+		Path file = scratch.resolve(name);
+		file.toFile().deleteOnExit(); //deleted before the directory, which was registered first
+		return file;
+	}
+
+	/**
+	 * Exports a platform and reads the file back
+	 * @param platform the platform
+	 * @param name the name of the file it is exported to
+	 * @return the exported lines
+	 */
+	private static String export(SocialMedia platform, String name) throws IOException {
+		Path file = scratch(name);
+		platform.exportPlatform(file.toString());
+		return Files.readString(file);
+	}
+
+	/**
+	 * Finds a post by its message, as an imported post does not keep the ID it was exported with
+	 * @param platform the platform
+	 * @param message the message of the post
+	 * @return the ID of the post
+	 */
+	private static int findPost(SocialMedia platform, String message) throws Exception {
+		int posts = platform.getTotalOriginalPosts() + platform.getTotalCommentPosts() + platform.getTotalEndorsmentPosts();
+		for (int id = 1; id <= posts * 4; id++) { //IDs of deleted posts and generic empty posts are skipped
+			try {
+				if (platform.showIndividualPost(id).endsWith("\t" + message)) {
+					return id;
+				}
+			} catch (PostIDNotRecognisedException e) {
+				continue;
+			}
+		}
+		throw new AssertionError("no post with the message " + message);
+	}
+
+	/**
+	 * Builds a platform holding each kind of post the generic empty post replaces: a comment whose only reply
+	 * was deleted after it, and an original post that still has a reply
+	 */
+	private static SocialMedia removedPostsPlatform() throws Exception {
+		SocialMedia platform = new SocialMedia();
+		platform.createAccount("alice");
+		platform.createAccount("bob");
+		int root = platform.createPost("alice", "root");
+		int replaced = platform.commentPost("bob", root, "replaced");
+		int reply = platform.commentPost("alice", replaced, "reply");
+		platform.commentPost("bob", root, "kept");
+		int removed = platform.createPost("bob", "removed");
+		platform.commentPost("alice", removed, "orphan");
+		platform.deletePost(replaced);
+		platform.deletePost(reply);
+		platform.deletePost(removed);
+		return platform;
+	}
+
+	/**
+	 * A platform that is exported and imported again keeps the posts the generic empty post replaced: a comment
+	 * left without replies is still counted under its post, and they are not counted in the totals
+	 */
+	private static void importKeepsRemovedPosts() throws Exception {
+		SocialMedia platform = removedPostsPlatform();
+		Path file = scratch("removed.txt");
+		platform.exportPlatform(file.toString());
+		SocialMedia imported = new SocialMedia();
+		imported.importPlatform(file.toString());
+		int root = findPost(platform, "root");
+		int importedRoot = findPost(imported, "root");
+		expect(true, imported.showIndividualPost(importedRoot).contains("No. comments: 2"), "comments of the root");
+		expect(platform.showPostChildrenDetails(root).toString().replaceAll("ID: \\d+", "ID: ?"),
+				imported.showPostChildrenDetails(importedRoot).toString().replaceAll("ID: \\d+", "ID: ?"),
+				"thread of the root");
+		expect(1, imported.getTotalOriginalPosts(), "original posts");
+		expect(2, imported.getTotalCommentPosts(), "comments");
+	}
+
+	/**
+	 * An import made with a journal open, including the generic empty posts and the replies to them, is made
+	 * again with the same IDs when the journal is replayed
+	 */
+	private static void importIsReplayedFromJournal() throws Exception {
+		Path file = scratch("journaled.txt");
+		removedPostsPlatform().exportPlatform(file.toString());
+		Path base = scratch("journaled.bin");
+		Path journal = scratch("journaled.log");
+		SocialMedia platform = new SocialMedia();
+		platform.createAccount("carol");
+		platform.savePlatform(base.toString());
+		platform.openJournal(journal.toString());
+		platform.importPlatform(file.toString());
+		platform.closeJournal();
+		SocialMedia replayed = new SocialMedia();
+		replayed.openJournal(journal.toString());
+		replayed.loadPlatform(base.toString());
+		replayed.closeJournal();
+		expect(export(platform, "journaled-platform.txt"), export(replayed, "journaled-replayed.txt"), "exported lines");
+	}
+
+	/**
+	 * An import that fails after making generic empty posts and replies to them takes all of them off again,
+	 * and so does replaying its journal
+	 */
+	private static void failedImportLeavesPlatformUnchanged() throws Exception {
+		Path file = scratch("failed.txt");
+		removedPostsPlatform().exportPlatform(file.toString());
+		Files.writeString(file, Files.readString(file) + "C\t99\t1\t98\tlost\n");
+		Path base = scratch("failed.bin");
+		Path journal = scratch("failed.log");
+		SocialMedia platform = new SocialMedia();
+		platform.createAccount("carol");
+		platform.createPost("carol", "before");
+		String before = export(platform, "failed-before.txt");
+		platform.savePlatform(base.toString());
+		platform.openJournal(journal.toString());
+		IOException failure = null;
+		try {
+			platform.importPlatform(file.toString());
+		} catch (IOException e) {
+			failure = e;
+		}
+		platform.closeJournal();
+		expect(true, failure != null, "import failed");
+		expect(0, failure.getSuppressed().length, "steps of the undo that failed");
+		expect(before, export(platform, "failed-after.txt"), "exported lines after the import");
+		SocialMedia replayed = new SocialMedia();
+		replayed.openJournal(journal.toString());
+		replayed.loadPlatform(base.toString());
+		replayed.closeJournal();
+		expect(before, export(replayed, "failed-replayed.txt"), "exported lines after replaying the journal");
+	}
+
+	/**
+	 * Posts, comments and endorsements made from several threads at once through ConcurrentSocialMedia each get
+	 * their own ID, with none skipped, and every one is counted in the totals. Replaying the journal of them gives
+	 * the same totals and carries on from the same ID
+	 */
+	private static void concurrentPostsGetDistinctIds() throws Exception {
+		int threads = 4;
+		int steps = 2000;
+		ConcurrentSocialMedia platform = new ConcurrentSocialMedia();
+		for (int i = 0; i < 20; i++) {
+			platform.createAccount("user" + i);
+		}
+		Path base = scratch("concurrent.bin");
+		Path journal = scratch("concurrent.log");
+		platform.savePlatform(base.toString());
+		platform.openJournal(journal.toString());
+		int root = platform.createPost("user0", "root");
+		Set<Integer> ids = ConcurrentHashMap.newKeySet();
+		ids.add(root);
+		AtomicInteger endorsements = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> running = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				Random random = new Random(t);
+				running.add(pool.submit(() -> {
+					for (int i = 0; i < steps; i++) {
+						String handle = "user" + random.nextInt(20);
+						int id;
+						switch (random.nextInt(3)) {
+							case 0:
+								id = platform.createPost(handle, "post");
+								break;
+							case 1:
+								id = platform.commentPost(handle, root, "comment");
+								break;
+							default:
+								id = platform.endorsePost(handle, root);
+								endorsements.incrementAndGet();
+						}
+						if (!ids.add(id)) {
+							throw new AssertionError("ID " + id + " was handed out twice");
+						}
+					}
+					return null;
+				}));
+			}
+			for (Future<?> thread : running) {
+				thread.get();
+			}
+		} finally {
+			pool.shutdown();
+		}
+		int posts = threads * steps + 1;
+		expect(posts, ids.size(), "IDs handed out");
+		expect(posts, ids.stream().mapToInt(Integer::intValue).max().getAsInt(), "highest ID");
+		expect(posts, platform.getTotalOriginalPosts() + platform.getTotalCommentPosts()
+				+ platform.getTotalEndorsmentPosts(), "posts counted");
+		expect(endorsements.get(), platform.getTotalEndorsmentPosts(), "endorsements counted");
+		expect(root, platform.getMostEndorsedPost(), "most endorsed post");
+		platform.closeJournal();
+		ConcurrentSocialMedia replayed = new ConcurrentSocialMedia();
+		replayed.openJournal(journal.toString());
+		replayed.loadPlatform(base.toString());
+		expect(platform.getTotalCommentPosts(), replayed.getTotalCommentPosts(), "comments after replaying the journal");
+		expect(endorsements.get(), replayed.getTotalEndorsmentPosts(), "endorsements after replaying the journal");
+		expect(posts + 1, replayed.createPost("user1", "after"), "ID after replaying the journal");
+		replayed.closeJournal();
+	}
+
+	/**
+	 * Runs the checks from the command line
+	 * @param args an optional filter=name argument
+	 */
+	public static void main(String[] args) {
+		String filter = "";
+		for (String arg : args) {
+			int split = arg.indexOf('=');
+			if (split < 0 || !arg.substring(0, split).equals("filter")) {
+				throw new IllegalArgumentException("Unknown argument: " + arg);
+			}
+			filter = arg.substring(split + 1);
+		}
+		int failed = new SocialMediaChecks().run(filter);
+		if (failed > 0) {
+			System.out.println(failed + " checks failed");
+			System.exit(1);
+		}
+	}
+}
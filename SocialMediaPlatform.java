@@ -1,5 +1,8 @@
 package socialmedia;
 
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * SocialMediaPlatform interface. This interface is a more elaborated version of
  * the MiniSocialMediaPlatform. The no-argument constructor of a class
@@ -45,6 +48,29 @@ public interface SocialMediaPlatform extends MiniSocialMediaPlatform {
 	 */
 	void removeAccount(String handle) throws HandleNotRecognisedException;
 
+	/**
+	 * The method hides the account with the corresponding ID at once and removes
+	 * its posts, comments and endorsements, and the endorsements others made of
+	 * them, afterwards. From the moment it returns the ID and handle are no longer
+	 * recognised and the handle can be taken again, though the account's posts
+	 * can still be shown until they are removed. A removal still waiting is
+	 * finished before the platform is saved, exported, loaded or erased, or when
+	 * finishAccountRemovals is called; ConcurrentSocialMedia finishes it in the
+	 * background straight away.
+	 * 
+	 * @param id ID of the account.
+	 * @return a future completed once the account's posts have been removed.
+	 * @throws AccountIDNotRecognisedException if the ID does not match to any
+	 *                                         account in the system.
+	 */
+	CompletableFuture<Void> removeAccountAsync(int id) throws AccountIDNotRecognisedException;
+
+	/**
+	 * The method removes the posts of every account hidden by removeAccountAsync
+	 * whose posts have not been removed yet, completing their futures.
+	 */
+	void finishAccountRemovals();
+
 	/**
 	 * The method updates the description of the account with the respective handle.
 	 * <p>
@@ -58,6 +84,18 @@ public interface SocialMediaPlatform extends MiniSocialMediaPlatform {
 	 */
 	void updateAccountDescription(String handle, String description) throws HandleNotRecognisedException;
 
+	/**
+	 * The method creates a formatted string summarising the stats of the account
+	 * identified by the given ID. The template is the same as
+	 * {@link #showAccount(String) showAccount(handle)}.
+	 * 
+	 * @param id ID of the account.
+	 * @return the account formatted summary.
+	 * @throws AccountIDNotRecognisedException if the ID does not match to any
+	 *                                         account in the system.
+	 */
+	String showAccount(int id) throws AccountIDNotRecognisedException;
+
 	// End Post-related methods ****************************************
 
 	// Analytics-related methods ****************************************
@@ -99,6 +137,350 @@ public interface SocialMediaPlatform extends MiniSocialMediaPlatform {
 	 */
 	int getTotalCommentPosts();
 
+	/**
+	 * This method returns the posts with the most number of endorsements, most
+	 * endorsed first. Posts with the same number of endorsements are ordered by
+	 * ID.
+	 * 
+	 * @param k the maximum number of posts to return.
+	 * @return the IDs of at most k endorsed posts.
+	 */
+	int[] getMostEndorsedPosts(int k);
+
+	/**
+	 * This method returns the accounts with the most number of endorsements
+	 * received by their posts, most endorsed first. Accounts with the same number
+	 * of endorsements are ordered by ID.
+	 * 
+	 * @param k the maximum number of accounts to return.
+	 * @return the IDs of at most k endorsed accounts.
+	 */
+	int[] getMostEndorsedAccounts(int k);
+
+	/**
+	 * This method returns the number of comments below a post at any depth,
+	 * including comments that were deleted while they had comments of their own.
+	 * It is kept up to date as posts change, so it does not walk the thread.
+	 * 
+	 * @param id of the post.
+	 * @return the number of comments in the thread below the post.
+	 * @throws PostIDNotRecognisedException if the ID does not match to any post in
+	 *                                      the system.
+	 * @throws NotActionablePostException   if the ID refers to an endorsement post.
+	 */
+	int getThreadCommentCount(int id) throws PostIDNotRecognisedException, NotActionablePostException;
+
+	/**
+	 * This method returns how deep the thread below a post goes: 0 if it has no
+	 * comments, 1 if none of its comments has comments, and so on. It is kept up
+	 * to date as posts change, so it does not walk the thread.
+	 * 
+	 * @param id of the post.
+	 * @return the depth of the thread below the post.
+	 * @throws PostIDNotRecognisedException if the ID does not match to any post in
+	 *                                      the system.
+	 * @throws NotActionablePostException   if the ID refers to an endorsement post.
+	 */
+	int getThreadDepth(int id) throws PostIDNotRecognisedException, NotActionablePostException;
+
+	/**
+	 * This method returns the number of endorsements of a post and of every
+	 * comment below it. It is kept up to date as posts change, so it does not walk
+	 * the thread.
+	 * 
+	 * @param id of the post.
+	 * @return the number of endorsements in the thread of the post.
+	 * @throws PostIDNotRecognisedException if the ID does not match to any post in
+	 *                                      the system.
+	 * @throws NotActionablePostException   if the ID refers to an endorsement post.
+	 */
+	int getThreadEndorsementCount(int id) throws PostIDNotRecognisedException, NotActionablePostException;
+
+	/**
+	 * The method writes the same text as showPostChildrenDetails(int) straight to
+	 * the given Appendable, such as a Writer, instead of building it in memory.
+	 * The thread is walked without recursion, so however deep it is it cannot
+	 * overflow the stack.
+	 * 
+	 * @param id  of the post to be shown.
+	 * @param out the Appendable the details are written to.
+	 * @throws PostIDNotRecognisedException if the ID does not match to any post in
+	 *                                      the system.
+	 * @throws NotActionablePostException   if the ID refers to an endorsement post.
+	 * @throws IOException                  if the Appendable cannot be written to.
+	 */
+	void showPostChildrenDetails(int id, Appendable out)
+			throws PostIDNotRecognisedException, NotActionablePostException, IOException;
+
+	/**
+	 * The method returns the comments below a post a page at a time, in the order
+	 * showPostChildrenDetails shows them, so a large thread can be read in
+	 * bounded steps. Each comment comes with its depth below the post and the ID
+	 * of the post or comment it replies to. A page ends with an opaque cursor the
+	 * next page is read from; if the thread changes between pages it carries on
+	 * after the last comment read, wherever that comment now is.
+	 * 
+	 * @param id     of the post whose comments are shown.
+	 * @param cursor the cursor of the previous page, or null for the first page.
+	 * @param limit  the most comments the page holds.
+	 * @return the page of comments, whose cursor is null if it ends the thread.
+	 * @throws PostIDNotRecognisedException if the ID does not match to any post in
+	 *                                      the system.
+	 * @throws NotActionablePostException   if the ID refers to an endorsement post.
+	 * @throws IllegalArgumentException     if the limit is not positive, or the
+	 *                                      cursor is malformed or was made for
+	 *                                      another post.
+	 */
+	CommentPage showPostChildrenPage(int id, String cursor, int limit)
+			throws PostIDNotRecognisedException, NotActionablePostException;
+
+	/**
+	 * The method changes how many rendered posts and accounts are kept, so that
+	 * showIndividualPost and showAccount can return a view again without formatting
+	 * it again. A view is dropped as soon as anything it shows changes, and the
+	 * least recently shown view is dropped to make room for another.
+	 * 
+	 * @param capacity the most views kept, or 0 to keep none.
+	 * @throws IllegalArgumentException if the capacity is negative.
+	 */
+	void setViewCacheCapacity(int capacity);
+
+	/**
+	 * This method returns the number of times showIndividualPost or showAccount
+	 * returned a kept view.
+	 * 
+	 * @return the number of view cache hits.
+	 */
+	long getViewCacheHits();
+
+	/**
+	 * This method returns the number of times showIndividualPost or showAccount
+	 * had to format the view.
+	 * 
+	 * @return the number of view cache misses.
+	 */
+	long getViewCacheMisses();
+
+	/**
+	 * This method returns the number of views dropped to make room for others.
+	 * 
+	 * @return the number of view cache evictions.
+	 */
+	long getViewCacheEvictions();
+
+	// Batch methods ****************************************
+
+	/**
+	 * The method creates several accounts at once, as createAccount would one by
+	 * one. Every item is validated before any is applied, and the valid items are
+	 * applied together and given consecutive IDs. An item whose handle is taken by
+	 * an earlier item of the batch is rejected.
+	 * 
+	 * @param handles      the handles of the accounts.
+	 * @param descriptions the descriptions of the accounts, or null if none have
+	 *                     one.
+	 * @throws IllegalArgumentException if there is not one description for each
+	 *                                  handle.
+	 * @return the ID of each account, or the exception createAccount would have
+	 *         thrown for it.
+	 */
+	BatchResult createAccounts(String[] handles, String[] descriptions);
+
+	/**
+	 * The method creates several posts at once, as createPost would one by one.
+	 * Every item is validated before any is applied, and the valid items are
+	 * applied together and given consecutive IDs.
+	 * 
+	 * @param handles  the handles of the authors of the posts.
+	 * @param messages the messages of the posts.
+	 * @throws IllegalArgumentException if there is not one message for each
+	 *                                  handle.
+	 * @return the ID of each post, or the exception createPost would have thrown
+	 *         for it.
+	 */
+	BatchResult createPosts(String[] handles, String[] messages);
+
+	/**
+	 * The method endorses several posts at once, as endorsePost would one by one.
+	 * Every item is validated before any is applied, and the valid items are
+	 * applied together and given consecutive IDs. Items
+	 * can only refer to posts that existed before the batch.
+	 * 
+	 * @param handles the handles of the endorsing accounts.
+	 * @param ids     the IDs of the posts being endorsed.
+	 * @throws IllegalArgumentException if there is not one post ID for each
+	 *                                  handle.
+	 * @return the ID of each endorsement, or the exception endorsePost would have
+	 *         thrown for it.
+	 */
+	BatchResult endorsePosts(String[] handles, int[] ids);
+
+	/**
+	 * The method comments on several posts at once, as commentPost would one by
+	 * one. Every item is validated before any is applied, and the valid items are
+	 * applied together and given consecutive IDs. Items
+	 * can only refer to posts that existed before the batch.
+	 * 
+	 * @param handles  the handles of the commenting accounts.
+	 * @param ids      the IDs of the posts being commented on.
+	 * @param messages the messages of the comments.
+	 * @throws IllegalArgumentException if there is not one post ID and one message
+	 *                                  for each handle.
+	 * @return the ID of each comment, or the exception commentPost would have
+	 *         thrown for it.
+	 */
+	BatchResult commentPosts(String[] handles, int[] ids, String[] messages);
+
+	/**
+	 * Method should load this SocialMediaPlatform's contents like loadPlatform,
+	 * but without building them up front. A binary snapshot is memory mapped and
+	 * the accounts and posts are read from the file as they are shown, the
+	 * platform is only built in memory once it is changed or a method needs the
+	 * whole of it. Files in other formats are loaded as loadPlatform would.
+	 * <p>
+	 * The state of this SocialMediaPlatform must be unchanged if any exceptions
+	 * are thrown.
+	 *
+	 * @param filename location of the file to be loaded
+	 * @throws IOException            if there is a problem experienced when trying
+	 *                                to load the store contents from the file
+	 * @throws ClassNotFoundException if required class files cannot be found when
+	 *                                loading
+	 */
+	void loadPlatformMapped(String filename) throws IOException, ClassNotFoundException;
+
+	/**
+	 * Method saves this SocialMediaPlatform's contents to a file as savePlatform
+	 * does, but writes the file in the background. The contents are copied before
+	 * the method returns, so the file holds them as they were at the call and the
+	 * platform can carry on changing while it is written. Copying takes time in
+	 * proportion to the size of the platform, and no change can be made during
+	 * it; only writing the file is taken off the caller. Background saves are
+	 * written in the order they were made, and later saves and loads wait for
+	 * them.
+	 *
+	 * @param filename location of the file to be saved
+	 * @return a future that completes once the file is written, or completes
+	 *         exceptionally with the IOException that stopped it
+	 */
+	CompletableFuture<Void> savePlatformAsync(String filename);
+
+	/**
+	 * Method saves this SocialMediaPlatform's contents to a file as a sequence of
+	 * blocks, each compressed with the given codec and carrying a checksum.
+	 * loadPlatform decodes the blocks in parallel, and reports the block that is
+	 * damaged if one fails its checksum.
+	 *
+	 * @param filename location of the file to be saved
+	 * @param codec    BlockSnapshot.CODEC_DEFLATE to compress the blocks, or
+	 *                 BlockSnapshot.CODEC_NONE to store them as they are
+	 * @throws IllegalArgumentException if the codec is not recognised
+	 * @throws IOException              if there is a problem experienced when
+	 *                                  trying to save the store contents to the
+	 *                                  file
+	 */
+	void savePlatformCompressed(String filename, int codec) throws IOException;
+
+	/**
+	 * Method saves this SocialMediaPlatform's contents as several shard files,
+	 * each holding some of the accounts along with every post they made, and a
+	 * manifest at the given location naming them. The shards are written in
+	 * parallel, and loadPlatform reads them back in parallel when given the
+	 * manifest, linking comments and endorsements between shards.
+	 *
+	 * @param filename location of the manifest, the shard files are saved beside
+	 *                 it
+	 * @param shards   the number of shard files
+	 * @throws IllegalArgumentException if shards is less than one
+	 * @throws IOException              if there is a problem experienced when
+	 *                                  trying to save the store contents to the
+	 *                                  files
+	 */
+	void savePlatformSharded(String filename, int shards) throws IOException;
+
+	/**
+	 * Method writes this SocialMediaPlatform's accounts, posts, comments and
+	 * endorsements to a text file, one record per line. Comments and
+	 * endorsements name the post they refer to by its ID, and posts are written
+	 * in the order of their IDs so a file can be imported one line at a time.
+	 *
+	 * @param filename location of the file to be written
+	 * @return the number of records written
+	 * @throws IOException if there is a problem experienced when trying to write
+	 *                     the file
+	 */
+	int exportPlatform(String filename) throws IOException;
+
+	/**
+	 * Method adds the records of a file written by exportPlatform to this
+	 * SocialMediaPlatform, reading it one line at a time. The accounts and posts
+	 * are given new IDs, and the references between them are remapped to match.
+	 * If a line cannot be imported, the records added before it are removed
+	 * again, so the platform holds what it did before the import. The IDs they
+	 * were given are not reused.
+	 *
+	 * @param filename location of the file to be read
+	 * @return the number of records imported
+	 * @throws IOException if the file cannot be read, or a line is malformed or
+	 *                     is rejected by the platform, for example because an
+	 *                     account's handle is already taken
+	 */
+	int importPlatform(String filename) throws IOException;
+
+	/**
+	 * Method saves only what has changed since this SocialMediaPlatform was last
+	 * saved to or loaded from the file, appending it to the file as a delta
+	 * segment. The whole platform is saved instead, as savePlatform would, when
+	 * the file is not the one last saved or loaded, has been changed since, or
+	 * already holds many segments. loadPlatform merges the segments.
+	 *
+	 * @param filename location of the file to be saved
+	 * @throws IOException if there is a problem experienced when trying to save
+	 *                     the store contents to the file
+	 */
+	void savePlatformIncremental(String filename) throws IOException;
+
+	/**
+	 * Method merges the delta segments of a saved file into a single snapshot,
+	 * replacing the file. The contents of this SocialMediaPlatform are not
+	 * changed.
+	 *
+	 * @param filename location of the file to be compacted
+	 * @throws IOException if the file does not hold a binary snapshot or cannot be
+	 *                     rewritten
+	 */
+	void compactPlatform(String filename) throws IOException;
+
+	/**
+	 * Method opens an append-only journal that records every change made to this
+	 * SocialMediaPlatform from then on. Records are forced to the disk in groups,
+	 * and no record waits longer than the journal's sync interval. loadPlatform
+	 * replays the records that are newer than the loaded file, and savePlatform
+	 * empties the journal once the saved file holds its records. An open journal
+	 * is closed first.
+	 *
+	 * @param filename location of the journal, which is created if it does not
+	 *                 exist
+	 * @throws IOException if the journal cannot be opened
+	 */
+	void openJournal(String filename) throws IOException;
+
+	/**
+	 * Method forces every change recorded in the open journal to the disk,
+	 * without waiting for its group to fill. Does nothing if no journal is open.
+	 *
+	 * @throws IOException if the journal cannot be written
+	 */
+	void syncJournal() throws IOException;
+
+	/**
+	 * Method forces the open journal to the disk and closes it, later changes are
+	 * not recorded. Does nothing if no journal is open.
+	 *
+	 * @throws IOException if the journal cannot be written
+	 */
+	void closeJournal() throws IOException;
+
 	// End Management-related methods ****************************************
 
 }
\ No newline at end of file
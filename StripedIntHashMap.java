@@ -0,0 +1,90 @@
+package socialmedia;
+
+/**
+ *
+ * The StripedIntHashMap class is an IntHashMap that can be read and changed from several threads at once. Keys
+ * are spread over a fixed number of stripes by their low bits, so sequential IDs fall into every stripe in
+ * turn, and each stripe is a plain IntHashMap guarded by its own monitor. Keys stay primitive, and threads
+ * only wait for each other when their keys share a stripe
+ *
+ * @author Pierre Siddall and Priya Shah
+ * @version 1.0
+ */
+
+public class StripedIntHashMap<V> extends IntHashMap<V> {
+    private static final long serialVersionUID = 1L;
+    private static final int STRIPES = 64; //a power of two, so a key picks its stripe with a mask
+    private final IntHashMap<V>[] stripes;
+
+    /**
+     * Constructor for an empty map
+     */
+    @SuppressWarnings("unchecked")
+    public StripedIntHashMap(){
+        super(0); //the entries live in the stripes, so the inherited table is never used
+        stripes = new IntHashMap[STRIPES];
+        for (int i = 0; i < STRIPES; i++){
+            stripes[i] = new IntHashMap<>();
+        }
+    }
+
+    private IntHashMap<V> stripe(int key){
+        return stripes[key & (STRIPES - 1)];
+    }
+
+    @Override
+    public V get(int key){
+        IntHashMap<V> stripe = stripe(key);
+        synchronized (stripe){
+            return stripe.get(key);
+        }
+    }
+
+    @Override
+    public boolean containsKey(int key){
+        IntHashMap<V> stripe = stripe(key);
+        synchronized (stripe){
+            return stripe.containsKey(key);
+        }
+    }
+
+    @Override
+    public V put(int key, V value){
+        IntHashMap<V> stripe = stripe(key);
+        synchronized (stripe){
+            return stripe.put(key, value);
+        }
+    }
+
+    @Override
+    public V remove(int key){
+        IntHashMap<V> stripe = stripe(key);
+        synchronized (stripe){
+            return stripe.remove(key);
+        }
+    }
+
+    /**
+     * Gets the number of mappings, which is only exact while no other thread changes the map
+     * @return an integer of the no. keys that are mapped
+     */
+    @Override
+    public int size(){
+        int size = 0;
+        for (IntHashMap<V> stripe : stripes){
+            synchronized (stripe){
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void clear(){
+        for (IntHashMap<V> stripe : stripes){
+            synchronized (stripe){
+                stripe.clear();
+            }
+        }
+    }
+}
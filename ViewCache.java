@@ -0,0 +1,203 @@
+package socialmedia;
+
+/**
+ *
+ * The ViewCache class keeps the most recently shown posts and accounts as the Strings they render to, so a
+ * post or account read again is not formatted again. It holds at most a fixed number of views and evicts the
+ * least recently used one to make room. The platform invalidates a view whenever something it shows changes,
+ * and a post view also records the tab number the post was indented by, since showing the post's thread
+ * changes it. All methods are synchronized, as views are read under a shared read lock
+ *
+ * @author Pierre Siddall and Priya Shah
+ * @version 1.0
+ */
+
+public class ViewCache {
+    private final IntHashMap<Entry> entries = new IntHashMap<>();
+    private final Entry head = new Entry(0, 0, null); //the most recently used entry follows it, the least precedes it
+    private int capacity;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * One cached view, linked into the order the views were last used in
+     */
+    private static class Entry {
+        private final int key;
+        private final int counter;
+        private final String view;
+        private Entry previous = this;
+        private Entry next = this;
+
+        private Entry(int key, int counter, String view) {
+            this.key = key;
+            this.counter = counter;
+            this.view = view;
+        }
+    }
+
+    /**
+     * Constructor for an empty cache
+     * @param capacity the most views the cache holds, or 0 to cache nothing
+     */
+    public ViewCache(int capacity) {
+        setCapacity(capacity);
+    }
+
+    /**
+     * Gets the key a post's view is cached under
+     * @param id the sequential ID of the post
+     * @return the key of the post
+     */
+    public static int postKey(int id) {
+        return id;
+    }
+
+    /**
+     * Gets the key an account's view is cached under, which never clashes with a post's
+     * @param id the unique ID of the account
+     * @return the key of the account
+     */
+    public static int accountKey(int id) {
+        return -id;
+    }
+
+    /**
+     * Gets a cached view, counting a hit or a miss
+     * @param key the key of the post or account
+     * @param counter the tab number the post is indented by now, or 0 for an account
+     * @return the view, or null if it is not cached or was rendered at a different tab number
+     */
+    public synchronized String get(int key, int counter) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.counter != counter) {
+            misses++;
+            return null;
+        }
+        hits++;
+        unlink(entry);
+        linkFirst(entry);
+        return entry.view;
+    }
+
+    /**
+     * Caches a view, evicting the least recently used view if the cache is full
+     * @param key the key of the post or account
+     * @param counter the tab number the post was indented by, or 0 for an account
+     * @param view the rendered view
+     */
+    public synchronized void put(int key, int counter, String view) {
+        if (capacity == 0) {
+            return;
+        }
+        Entry old = entries.remove(key);
+        if (old != null) {
+            unlink(old);
+        }
+        Entry entry = new Entry(key, counter, view);
+        entries.put(key, entry);
+        linkFirst(entry);
+        if (entries.size() > capacity) {
+            evict();
+        }
+    }
+
+    /**
+     * Drops the view of a post or account that has changed
+     * @param key the key of the post or account
+     */
+    public synchronized void invalidate(int key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            unlink(entry);
+        }
+    }
+
+    /**
+     * Drops every view, as when the platform is erased or loaded
+     */
+    public synchronized void clear() {
+        if (entries.size() > 0) {
+            entries.clear();
+            head.previous = head;
+            head.next = head;
+        }
+    }
+
+    /**
+     * Changes the most views the cache holds, evicting views until it fits
+     * @param capacity the most views the cache holds, or 0 to cache nothing
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    public synchronized void setCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("The capacity of a cache cannot be negative");
+        }
+        this.capacity = capacity;
+        while (entries.size() > capacity) {
+            evict();
+        }
+    }
+
+    /**
+     * Gets the most views the cache holds
+     * @return an integer of the capacity, or 0 if the cache is disabled
+     */
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of views cached
+     * @return an integer of the no. views held
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of reads that were answered from the cache
+     * @return the no. hits since the cache was made
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of reads that had to render the view
+     * @return the no. misses since the cache was made
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of views dropped to make room for others, not counting those invalidated
+     * @return the no. evictions since the cache was made
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    private void evict() {
+        Entry eldest = head.previous;
+        entries.remove(eldest.key);
+        unlink(eldest);
+        evictions++;
+    }
+
+    private void linkFirst(Entry entry) {
+        entry.previous = head;
+        entry.next = head.next;
+        head.next.previous = entry;
+        head.next = entry;
+    }
+
+    private void unlink(Entry entry) {
+        entry.previous.next = entry.next;
+        entry.next.previous = entry.previous;
+        entry.previous = entry;
+        entry.next = entry;
+    }
+}